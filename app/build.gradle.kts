@@ -26,6 +26,17 @@ android {
             )
         }
     }
+    buildFeatures {
+        viewBinding = true
+        // BuildConfig.DEBUG открывает административные действия в отладочной сборке
+        buildConfig = true
+    }
+    testOptions {
+        unitTests.all {
+            // Микробенчмарки JVM запускаются только явно: -PrunBenchmarks=true
+            it.systemProperty("runBenchmarks", project.findProperty("runBenchmarks") ?: "false")
+        }
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -40,8 +51,14 @@ dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
-    implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.viewmodel.savedstate)
+    implementation(libs.lifecycle.livedata)
+    implementation(libs.lifecycle.process)
+    implementation(libs.startup.runtime)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.constraintlayout)
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Проверка AuthClient через внедрение ошибок (FaultInjector): повторы временных ошибок,
+ * срабатывание выключателя, объединение одинаковых запросов и восстановление
+ * регистрации, ответ на которую потерян.
+ *
+ * Ошибки внедряются до обращения к сервису, поэтому первые три проверки сеть не используют.
+ * Восстановление через вход создаёт пользователя и запускается явно с эмулятором:
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.runFirebaseTests=true
+ */
+@RunWith(AndroidJUnit4.class)
+public class AuthClientTest {
+
+    /** Сколько ждать завершения запроса с повторами */
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private Bundle args;
+    private FirebaseAuth auth;
+    private AuthClient client;
+
+    /** Количество попыток, дошедших до FaultInjector */
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        args = InstrumentationRegistry.getArguments();
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        auth = FirebaseSetup.getAuth(context);
+        client = new AuthClient(auth);
+    }
+
+    @After
+    public void tearDown() {
+        auth.signOut();
+    }
+
+    @Test
+    public void transientFailures_retryUpToLimit() throws Exception {
+        client.setFaultInjector(operation -> {
+            attempts.incrementAndGet();
+            return new FirebaseNetworkException("нет сети");
+        });
+
+        Exception error = failureOf(onMain(() -> client.signIn("retry@example.com", "password1")));
+
+        assertTrue(String.valueOf(error), error instanceof FirebaseNetworkException);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void fiveTransientFailures_openBreaker_andFailFast() throws Exception {
+        client.setFaultInjector(operation -> {
+            attempts.incrementAndGet();
+            return new FirebaseNetworkException("нет сети");
+        });
+
+        // Первый запрос — три неудачные попытки, второй — ещё две, третья попытка отклонена
+        failureOf(onMain(() -> client.signIn("breaker@example.com", "password1")));
+        Exception second = failureOf(onMain(() -> client.signIn("breaker@example.com", "password1")));
+        assertTrue(String.valueOf(second), second instanceof AuthClient.AuthUnavailableException);
+        assertEquals(5, attempts.get());
+
+        // Выключатель открыт — запрос завершается сразу, не доходя до сервиса
+        Exception third = failureOf(onMain(() -> client.signIn("breaker@example.com", "password1")));
+        assertTrue(String.valueOf(third), third instanceof AuthClient.AuthUnavailableException);
+        assertEquals(5, attempts.get());
+        assertEquals(2, client.getShortCircuitedCount());
+    }
+
+    @Test
+    public void identicalConcurrentSignIns_shareOneCall() throws Exception {
+        client.setFaultInjector(operation -> {
+            attempts.incrementAndGet();
+            return new FirebaseAuthInvalidCredentialsException("ERROR_WRONG_PASSWORD", "неверный пароль");
+        });
+
+        Task<?>[] tasks = new Task<?>[3];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            tasks[0] = client.signIn("dedupe@example.com", "password1");
+            tasks[1] = client.signIn("dedupe@example.com", "password1");
+            tasks[2] = client.signIn("dedupe@example.com", "другой пароль");
+        });
+
+        assertSame(tasks[0], tasks[1]);
+        failureOf(tasks[0]);
+        failureOf(tasks[2]);
+        // Запрос с другим паролем выполняется отдельно
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void collisionOnRetry_recoversThroughSignIn() throws Exception {
+        Assume.assumeTrue("Тесты с Firebase отключены", Boolean.parseBoolean(args.getString("runFirebaseTests")));
+
+        // Аккаунт уже создан «потерянной» попыткой
+        String email = "recover-" + Long.toString(System.currentTimeMillis(), 36) + "@example.com";
+        Tasks.await(auth.createUserWithEmailAndPassword(email, "password1"), 60, TimeUnit.SECONDS);
+        auth.signOut();
+
+        client.setFaultInjector(operation -> attempts.incrementAndGet() == 1
+                ? new FirebaseNetworkException("ответ потерян")
+                : new FirebaseAuthUserCollisionException("ERROR_EMAIL_ALREADY_IN_USE", "email занят"));
+
+        AuthResult result = Tasks.await(onMain(() -> client.createUser(email, "password1")),
+                TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(email, result.getUser().getEmail());
+        assertEquals(2, attempts.get());
+
+        // Чужой аккаунт: пароль не подходит — остаётся ошибка «email занят»
+        auth.signOut();
+        attempts.set(0);
+        Exception error = failureOf(onMain(() -> client.createUser(email, "другой пароль")));
+        assertTrue(String.valueOf(error), error instanceof FirebaseAuthUserCollisionException);
+    }
+
+    /** Вызывает метод AuthClient в главном потоке, как это делают экраны */
+    private static <T> Task<T> onMain(Supplier<Task<T>> call) {
+        Object[] task = new Object[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> task[0] = call.get());
+        @SuppressWarnings("unchecked")
+        Task<T> result = (Task<T>) task[0];
+        return result;
+    }
+
+    /** Ждёт завершения задачи ошибкой и возвращает её */
+    private static Exception failureOf(Task<?> task) throws InterruptedException, TimeoutException {
+        try {
+            Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return (Exception) e.getCause();
+        }
+        fail("Ожидалась ошибка");
+        return null;
+    }
+}
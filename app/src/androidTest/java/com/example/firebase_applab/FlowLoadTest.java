@@ -0,0 +1,422 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Нагрузочные тесты сценариев входа, регистрации и загрузки профиля
+ * на локальных эмуляторах Firebase Auth и Realtime Database.
+ *
+ * Каждый виртуальный пользователь работает через собственный экземпляр FirebaseApp
+ * и выполняет те же операции, что и LoginActivity, RegisterActivity и MainActivity.
+ * По каждому шагу считаются пропускная способность и задержки p50/p99.
+ * Результаты сохраняются в JSON (Android/data/<пакет>/files/benchmark/) для сравнения между коммитами.
+ *
+ * Тесты запускаются только явно:
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.runLoadTests=true
+ *
+ * Дополнительные аргументы: users (по умолчанию 20), seedUsers (100000),
+ * presenceClients (200), presenceSeconds (60), presenceHeartbeatMs (10000), shardUsers (2000),
+ * emulatorHost (10.0.2.2), authPort (9099), databasePort (9000).
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlowLoadTest {
+
+    private static final String TAG = "FlowLoadTest";
+
+    private Context context;
+    private Bundle args;
+    private String host;
+    private int authPort;
+    private int databasePort;
+
+    @Before
+    public void setUp() {
+        args = InstrumentationRegistry.getArguments();
+        Assume.assumeTrue("Нагрузочные тесты отключены", Boolean.parseBoolean(args.getString("runLoadTests")));
+
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        host = args.getString("emulatorHost", "10.0.2.2");
+        authPort = Integer.parseInt(args.getString("authPort", "9099"));
+        databasePort = Integer.parseInt(args.getString("databasePort", "9000"));
+    }
+
+    /**
+     * N одновременных пользователей: регистрация, запись профиля, вход, чтение профиля.
+     */
+    @Test
+    public void concurrentUsers_registerLoginLoadProfile() throws Exception {
+        int users = Integer.parseInt(args.getString("users", "20"));
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        Map<String, LatencyHistogram> steps = new LinkedHashMap<>();
+        for (String step : new String[]{"createUser", "saveProfile", "signIn", "loadProfile"}) {
+            steps.put(step, new LatencyHistogram());
+        }
+        AtomicInteger failures = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        List<Future<?>> futures = new ArrayList<>(users);
+        long startMs = SystemClock.elapsedRealtime();
+
+        for (int i = 0; i < users; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                try {
+                    runUserFlow(runId, index, steps);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    Log.w(TAG, "Сценарий пользователя " + index + " завершился ошибкой", e);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        long wallMs = SystemClock.elapsedRealtime() - startMs;
+
+        writeReport("flow-load.json", users, wallMs, steps);
+        assertEquals(0, failures.get());
+    }
+
+    /**
+     * Справочник пользователей: объём чтения зависит от числа просмотренных страниц,
+     * а не от общего количества пользователей в базе.
+     */
+    @Test
+    public void userDirectory_readsGrowWithPagesViewed() throws Exception {
+        int seedUsers = Integer.parseInt(args.getString("seedUsers", "100000"));
+        DatabaseReference root = database(app("directory")).getReference();
+
+        // Заполняем базу порциями по 1000 профилей
+        for (int start = 0; start < seedUsers; start += 1000) {
+            Map<String, Object> updates = new HashMap<>();
+            for (int i = start; i < Math.min(start + 1000, seedUsers); i++) {
+                String uid = String.format(Locale.ROOT, "seed-%07d", i);
+                updates.put("Users/" + uid, UserMapper.toMap(new User("Пользователь " + i, uid + "@example.com")));
+            }
+            Tasks.await(root.updateChildren(updates), 60, TimeUnit.SECONDS);
+        }
+
+        UserPager pager = new UserPager(root);
+        int pages = 5;
+        int rows = 0;
+        for (int i = 0; i < pages; i++) {
+            rows += await(pager.loadNext()).size();
+        }
+
+        assertEquals(pages, pager.getNetworkReads());
+        assertEquals(pages * UserPager.PAGE_SIZE, rows);
+    }
+
+    /**
+     * Статус «в сети»: много клиентов с PresenceTracker, у каждого свой FirebaseApp.
+     * Наблюдатель считает записи, которые видит сервер, и отчёт сообщает темп записи.
+     * В конце соединения клиентов обрываются без записи статуса — онлайн-статус
+     * должен сняться серверным onDisconnect().
+     */
+    @Test
+    public void presence_manyClients_reportsWriteRate() throws Exception {
+        int clients = Integer.parseInt(args.getString("presenceClients", "200"));
+        int seconds = Integer.parseInt(args.getString("presenceSeconds", "60"));
+        long heartbeatMs = Long.parseLong(args.getString("presenceHeartbeatMs", "10000"));
+        String prefix = "presence-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+
+        // Наблюдатель: каждое добавление или изменение узла — одна запись, дошедшая до сервера
+        Query presence = database(app(prefix + "observer")).getReference(PresenceTracker.NODE)
+                .orderByKey().startAt(prefix).endAt(prefix + "\uf8ff");
+        AtomicLong serverWrites = new AtomicLong();
+        Map<String, Boolean> online = new ConcurrentHashMap<>();
+        presence.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                onChildChanged(snapshot, previousChildName);
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                serverWrites.incrementAndGet();
+                online.put(snapshot.getKey(),
+                        Boolean.TRUE.equals(snapshot.child(PresenceTracker.KEY_ONLINE).getValue(Boolean.class)));
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                Log.w(TAG, "Наблюдатель статусов остановлен: " + error.getMessage());
+            }
+        });
+
+        // Клиенты выходят в сеть
+        List<FirebaseDatabase> databases = new ArrayList<>(clients);
+        long clientWritesBefore = PresenceTracker.getWriteCount();
+        long startMs = SystemClock.elapsedRealtime();
+        for (int i = 0; i < clients; i++) {
+            FirebaseDatabase database = database(app(prefix + i));
+            databases.add(database);
+            PresenceTracker tracker = new PresenceTracker(database, heartbeatMs);
+            String uid = prefix + i;
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> tracker.goOnline(uid));
+        }
+
+        awaitCondition("все клиенты в сети", () -> countOnline(online) == clients);
+        long connectMs = SystemClock.elapsedRealtime() - startMs;
+
+        // Установившийся режим: только обновления lastSeen
+        long steadyServerBefore = serverWrites.get();
+        SystemClock.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        long steadyWrites = serverWrites.get() - steadyServerBefore;
+        long clientWrites = PresenceTracker.getWriteCount() - clientWritesBefore;
+
+        // Обрыв соединений без записи статуса — сработать должен onDisconnect на сервере
+        long dropStartMs = SystemClock.elapsedRealtime();
+        for (FirebaseDatabase database : databases) {
+            database.goOffline();
+        }
+        awaitCondition("все клиенты не в сети", () -> countOnline(online) == 0);
+        long disconnectMs = SystemClock.elapsedRealtime() - dropStartMs;
+
+        double perClientPerMin = steadyWrites * 60.0 / seconds / clients;
+        double projectedPerSec = perClientPerMin / 60.0 * 1_000_000
+                * heartbeatMs / PresenceTracker.HEARTBEAT_INTERVAL_MS;
+        String json = String.format(Locale.ROOT, "{\n"
+                        + "  \"clients\": %d,\n  \"seconds\": %d,\n  \"heartbeatMs\": %d,\n"
+                        + "  \"connectMs\": %d,\n  \"disconnectMs\": %d,\n"
+                        + "  \"clientWrites\": %d,\n  \"serverWritesSteady\": %d,\n"
+                        + "  \"writesPerSec\": %.1f,\n  \"writesPerClientPerMin\": %.2f,\n"
+                        + "  \"projectedWritesPerSecFor1MClients\": %.0f\n}\n",
+                clients, seconds, heartbeatMs, connectMs, disconnectMs, clientWrites, steadyWrites,
+                steadyWrites / (double) seconds, perClientPerMin, projectedPerSec);
+        writeJson("presence-load.json", json);
+
+        // Не больше одного обновления lastSeen на интервал (с учётом разброса ±20%)
+        double maxPerClientPerMin = 60_000.0 / (heartbeatMs * 0.8) + 1;
+        assertTrue("Слишком частые записи статуса: " + perClientPerMin, perClientPerMin <= maxPerClientPerMin);
+    }
+
+    /**
+     * Шардирование профилей: пользователи записываются через UserShards в 3 шарда
+     * (отдельные пространства имён эмулятора), затем добавляется 4-й шард и ShardRebalancer
+     * переносит к нему примерно четверть профилей. После переноса каждый профиль
+     * хранится в шарде, который для него выбирает ShardRouter.
+     */
+    @Test
+    public void sharding_addShard_movesAboutQuarter() throws Exception {
+        int users = Integer.parseInt(args.getString("shardUsers", "2000"));
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        FirebaseApp app = app("shards-" + runId);
+        DatabaseReference primary = database(app).getReference();
+
+        List<String> urls = new ArrayList<>();
+        List<DatabaseReference> roots = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String url = "https://shard" + i + "-" + runId + ".firebaseio.com";
+            urls.add(url);
+            roots.add(database(app, url).getReference());
+        }
+        ShardRouter threeRouter = new ShardRouter(urls.subList(0, 3));
+        UserShards three = new UserShards(primary, threeRouter, roots.subList(0, 3));
+        UserShards four = new UserShards(primary, new ShardRouter(urls), roots, threeRouter, roots.subList(0, 3));
+
+        // Регистрации порциями по 500: профили — в шарды, индекс email — в основную базу
+        long writeStartMs = SystemClock.elapsedRealtime();
+        for (int start = 0; start < users; start += 500) {
+            Map<String, Object> updates = new HashMap<>();
+            for (int i = start; i < Math.min(start + 500, users); i++) {
+                String uid = String.format(Locale.ROOT, "%s-%06d", runId, i);
+                updates.putAll(EmailIndex.registrationUpdates(uid,
+                        new User("Пользователь " + i, uid + "@example.com")));
+            }
+            await(three.updateChildren(updates));
+        }
+        long writeMs = SystemClock.elapsedRealtime() - writeStartMs;
+        ShardRebalancer.Report initial = await(new ShardRebalancer(three).report());
+
+        // До переноса профиль, сменивший шард, читается из прежнего шарда
+        for (int i = 0; i < users; i++) {
+            String uid = String.format(Locale.ROOT, "%s-%06d", runId, i);
+            if (four.previousUserRef(uid) != null) {
+                assertTrue("Профиль " + uid + " не найден", await(four.getUser(uid)).exists());
+                break;
+            }
+        }
+
+        long rebalanceStartMs = SystemClock.elapsedRealtime();
+        ShardRebalancer.Report rebalanced = await(new ShardRebalancer(four).rebalance(true));
+        long rebalanceMs = SystemClock.elapsedRealtime() - rebalanceStartMs;
+        ShardRebalancer.Report result = await(new ShardRebalancer(four).report());
+
+        String json = String.format(Locale.ROOT, "{\n"
+                        + "  \"users\": %d,\n  \"writeMs\": %d,\n  \"rebalanceMs\": %d,\n"
+                        + "  \"threeShards\": %s,\n  \"fourShards\": %s,\n"
+                        + "  \"moved\": %d,\n  \"imbalance\": %.2f\n}\n",
+                users, writeMs, rebalanceMs, Arrays.toString(initial.before), Arrays.toString(result.before),
+                rebalanced.moved, result.imbalance());
+        writeJson("sharding.json", json);
+
+        assertEquals(0, initial.moved);
+        assertEquals(users, initial.total());
+        double share = rebalanced.moved / (double) users;
+        assertTrue("Перенесено " + share, share > 0.15 && share < 0.35);
+        assertEquals(0, result.moved);
+        assertEquals(users, result.total());
+    }
+
+    private static int countOnline(Map<String, Boolean> online) {
+        int count = 0;
+        for (Boolean value : online.values()) {
+            if (value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ждёт выполнения условия не дольше минуты.
+     */
+    private static void awaitCondition(String description, BooleanSupplier condition) {
+        long deadline = SystemClock.elapsedRealtime() + TimeUnit.MINUTES.toMillis(1);
+        while (!condition.getAsBoolean()) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                throw new AssertionError("Не дождались: " + description);
+            }
+            SystemClock.sleep(100);
+        }
+    }
+
+    /**
+     * Сценарий одного пользователя с замером каждого шага.
+     */
+    private void runUserFlow(String runId, int index, Map<String, LatencyHistogram> steps) throws Exception {
+        FirebaseApp app = app("load-" + runId + "-" + index);
+        FirebaseAuth auth = FirebaseAuth.getInstance(app);
+        auth.useEmulator(host, authPort);
+        DatabaseReference root = database(app).getReference();
+
+        String email = "load-" + runId + "-" + index + "@example.com";
+        String password = "password" + index;
+
+        // RegisterActivity.registerUser
+        String uid = timed(steps.get("createUser"),
+                auth.createUserWithEmailAndPassword(email, password)).getUser().getUid();
+
+        // RegisterActivity.saveUserDataToDatabase
+        timed(steps.get("saveProfile"),
+                root.updateChildren(EmailIndex.registrationUpdates(uid, new User("Пользователь " + index, email))));
+
+        // LoginActivity.loginUser
+        auth.signOut();
+        timed(steps.get("signIn"), auth.signInWithEmailAndPassword(email, password));
+
+        // MainActivity.loadUserInfo
+        timed(steps.get("loadProfile"), root.child("Users").child(uid).get());
+    }
+
+    private FirebaseApp app(String name) {
+        return FirebaseApp.initializeApp(context, FirebaseApp.getInstance().getOptions(), name);
+    }
+
+    private FirebaseDatabase database(FirebaseApp app) {
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.useEmulator(host, databasePort);
+        return database;
+    }
+
+    /**
+     * Отдельный экземпляр базы (пространство имён эмулятора) по URL.
+     */
+    private FirebaseDatabase database(FirebaseApp app, String url) {
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app, url);
+        database.useEmulator(host, databasePort);
+        return database;
+    }
+
+    private static <T> T timed(LatencyHistogram histogram, Task<T> task) throws Exception {
+        long start = SystemClock.elapsedRealtime();
+        T result = await(task);
+        histogram.record(SystemClock.elapsedRealtime() - start);
+        return result;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Сохраняет результаты в JSON: для каждого шага — количество, операций в секунду, p50, p99.
+     */
+    private void writeReport(String fileName, int users, long wallMs, Map<String, LatencyHistogram> steps)
+            throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"users\": " + users + ",\n  \"wallMs\": " + wallMs + ",\n  \"steps\": {\n");
+        int i = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : steps.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            json.append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"count\": %d, \"throughputPerSec\": %.1f, \"p50Ms\": %d, \"p99Ms\": %d}%s\n",
+                    entry.getKey(), h.getCount(), h.getCount() * 1000.0 / Math.max(wallMs, 1),
+                    h.percentile(50), h.percentile(99), ++i < steps.size() ? "," : ""));
+        }
+        json.append("  }\n}\n");
+        writeJson(fileName, json.toString());
+    }
+
+    private void writeJson(String fileName, String json) throws IOException {
+        File dir = context.getExternalFilesDir("benchmark");
+        try (FileWriter writer = new FileWriter(new File(dir, fileName))) {
+            writer.write(json);
+        }
+        Log.i(TAG, json);
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.firebase_applab;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.FrameMetrics;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Бенчмарк разметки экранов входа, регистрации и главного экрана.
+ *
+ * 1. Инфляция и проход measure/layout: прежние вложенные разметки
+ *    (ConstraintLayout → LinearLayout, лежат в ресурсах теста как legacy_*)
+ *    сравниваются с текущими плоскими на одном устройстве в одном запуске.
+ * 2. Время первых кадров LoginActivity и RegisterActivity по FrameMetrics —
+ *    для сравнения между коммитами.
+ *
+ * Результаты сохраняются в Android/data/<пакет>/files/benchmark/layout.json
+ * вместе с параметрами устройства. Для профиля слабого устройства тест запускается
+ * на эмуляторе с 2 ядрами и 1 ГБ памяти (например, AVD "Nexus 4", API 24).
+ *
+ * Запуск: ./gradlew connectedAndroidTest
+ *     -Pandroid.testInstrumentationRunnerArguments.runBenchmarks=true
+ */
+@RunWith(AndroidJUnit4.class)
+public class LayoutBenchmarkTest {
+
+    private static final String TAG = "LayoutBenchmarkTest";
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 500;
+
+    /** Размер экрана слабого устройства для прохода measure/layout, px */
+    private static final int SCREEN_WIDTH = 720;
+    private static final int SCREEN_HEIGHT = 1280;
+
+    /** Сколько первых кадров экрана учитывать */
+    private static final int FRAMES = 5;
+
+    private Context appContext;
+    private Context testContext;
+
+    @Before
+    public void setUp() {
+        Bundle args = InstrumentationRegistry.getArguments();
+        Assume.assumeTrue("Бенчмарки отключены", Boolean.parseBoolean(args.getString("runBenchmarks")));
+
+        appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        testContext = InstrumentationRegistry.getInstrumentation().getContext();
+    }
+
+    @Test
+    public void inflationAndFrames_legacyVsFlat() throws Exception {
+        Map<String, String> results = new LinkedHashMap<>();
+        results.put("device", "\"" + Build.MODEL + ", API " + Build.VERSION.SDK_INT + ", ядер "
+                + Runtime.getRuntime().availableProcessors() + "\"");
+        results.put("lowRamDevice", String.valueOf(
+                ((ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE)).isLowRamDevice()));
+
+        Map<String, int[]> layouts = new LinkedHashMap<>();
+        layouts.put("main", new int[]{
+                testContext.getResources().getIdentifier("legacy_activity_main", "layout", testContext.getPackageName()),
+                R.layout.activity_main});
+        layouts.put("login", new int[]{
+                testContext.getResources().getIdentifier("legacy_activity_login", "layout", testContext.getPackageName()),
+                R.layout.activity_login});
+        layouts.put("register", new int[]{
+                testContext.getResources().getIdentifier("legacy_activity_register", "layout", testContext.getPackageName()),
+                R.layout.activity_register});
+
+        for (Map.Entry<String, int[]> entry : layouts.entrySet()) {
+            String screen = entry.getKey();
+            LayoutStats legacy = measureLayout(testContext, entry.getValue()[0]);
+            LayoutStats flat = measureLayout(appContext, entry.getValue()[1]);
+            results.put(screen + ".legacy", legacy.toJson());
+            results.put(screen + ".flat", flat.toJson());
+
+            assertTrue("Плоская разметка " + screen + " глубже прежней", flat.depth < legacy.depth);
+        }
+
+        results.put("login.frames", firstFrames(LoginActivity.class));
+        results.put("register.frames", firstFrames(RegisterActivity.class));
+
+        writeReport(results);
+    }
+
+    /**
+     * Среднее время инфляции и прохода measure/layout разметки, мкс.
+     *
+     * @param resourcesContext контекст, в ресурсах которого лежит разметка
+     * @param layoutId         идентификатор разметки
+     */
+    private LayoutStats measureLayout(Context resourcesContext, int layoutId) throws Exception {
+        LayoutStats stats = new LayoutStats();
+        CountDownLatch done = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(() -> {
+            // Тема приложения, чтобы стили виджетов совпадали с экраном
+            LayoutInflater inflater = LayoutInflater.from(
+                    new ContextThemeWrapper(appContext, R.style.Theme_Firebase_appLab));
+            int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY);
+            int heightSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                View view = inflate(inflater, resourcesContext, layoutId);
+                view.measure(widthSpec, heightSpec);
+                view.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+            }
+
+            long inflateNs = 0;
+            long layoutNs = 0;
+            View view = null;
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                view = inflate(inflater, resourcesContext, layoutId);
+                long inflated = System.nanoTime();
+                view.measure(widthSpec, heightSpec);
+                view.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+                layoutNs += System.nanoTime() - inflated;
+                inflateNs += inflated - start;
+            }
+            stats.inflateUs = inflateNs / 1000.0 / MEASURED_ITERATIONS;
+            stats.layoutUs = layoutNs / 1000.0 / MEASURED_ITERATIONS;
+            stats.views = countViews(view);
+            stats.depth = depth(view);
+            done.countDown();
+        });
+        assertTrue(done.await(2, TimeUnit.MINUTES));
+        return stats;
+    }
+
+    /**
+     * Инфляция разметки из ресурсов любого APK (приложения или теста) темой приложения.
+     */
+    private static View inflate(LayoutInflater inflater, Context resourcesContext, int layoutId) {
+        try (XmlResourceParser parser = resourcesContext.getResources().getLayout(layoutId)) {
+            return inflater.inflate(parser, null, false);
+        }
+    }
+
+    /**
+     * Время первых кадров экрана по FrameMetrics (API 24+).
+     *
+     * @return JSON-массив кадров: общее время и время measure/layout, мс
+     */
+    private String firstFrames(Class<? extends Activity> activityClass) throws Exception {
+        List<String> frames = new ArrayList<>();
+        CountDownLatch collected = new CountDownLatch(FRAMES);
+        Handler handler = new Handler(Looper.getMainLooper());
+        Window.OnFrameMetricsAvailableListener listener = (window, metrics, dropped) -> {
+            synchronized (frames) {
+                if (frames.size() < FRAMES) {
+                    frames.add(String.format(Locale.ROOT, "{\"totalMs\": %.2f, \"layoutMs\": %.2f}",
+                            metrics.getMetric(FrameMetrics.TOTAL_DURATION) / 1e6,
+                            metrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION) / 1e6));
+                    collected.countDown();
+                }
+            }
+        };
+
+        // Слушатель подключается в onActivityCreated, чтобы не пропустить первый кадр
+        Application application = (Application) appContext.getApplicationContext();
+        Application.ActivityLifecycleCallbacks callbacks = new SimpleLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+                if (activityClass.isInstance(activity)) {
+                    activity.getWindow().addOnFrameMetricsAvailableListener(listener, handler);
+                }
+            }
+        };
+        application.registerActivityLifecycleCallbacks(callbacks);
+        try (ActivityScenario<? extends Activity> scenario = ActivityScenario.launch(activityClass)) {
+            collected.await(10, TimeUnit.SECONDS);
+        } finally {
+            application.unregisterActivityLifecycleCallbacks(callbacks);
+        }
+        synchronized (frames) {
+            return frames.toString();
+        }
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static int depth(View view) {
+        int max = 0;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                max = Math.max(max, depth(group.getChildAt(i)));
+            }
+        }
+        return max + 1;
+    }
+
+    private void writeReport(Map<String, String> results) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        int i = 0;
+        for (Map.Entry<String, String> entry : results.entrySet()) {
+            json.append("  \"").append(entry.getKey()).append("\": ").append(entry.getValue())
+                    .append(++i < results.size() ? ",\n" : "\n");
+        }
+        json.append("}\n");
+
+        File dir = appContext.getExternalFilesDir("benchmark");
+        try (FileWriter writer = new FileWriter(new File(dir, "layout.json"))) {
+            writer.write(json.toString());
+        }
+        Log.i(TAG, json.toString());
+    }
+
+    /**
+     * Результаты замера одной разметки.
+     */
+    private static final class LayoutStats {
+        double inflateUs;
+        double layoutUs;
+        int views;
+        int depth;
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"inflateUs\": %.1f, \"measureLayoutUs\": %.1f, \"views\": %d, \"depth\": %d}",
+                    inflateUs, layoutUs, views, depth);
+        }
+    }
+
+    /**
+     * ActivityLifecycleCallbacks с пустыми методами.
+     */
+    private static class SimpleLifecycleCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.lifecycle.Observer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Запись без соединения с базой: профиль на экране обновляется сразу,
+ * запись ждёт в PendingWrites и уходит на сервер после FirebaseSetup.setOnline(true).
+ *
+ * Тест создаёт пользователя в той базе, которая настроена в res/values/config.xml,
+ * поэтому запускается явно и с включённым эмулятором (use_firebase_emulator):
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.runFirebaseTests=true
+ */
+@RunWith(AndroidJUnit4.class)
+public class OfflineWriteTest {
+
+    /** Сколько ждать ответа эмулятора */
+    private static final long TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Без сети запись применяется локально — экран должен обновиться почти сразу */
+    private static final long LOCAL_UPDATE_MS = 1_000;
+
+    private Context context;
+    private FirebaseAuth auth;
+    private UserShards shards;
+    private String uid;
+
+    @Before
+    public void setUp() throws Exception {
+        Bundle args = InstrumentationRegistry.getArguments();
+        Assume.assumeTrue("Тесты с Firebase отключены", Boolean.parseBoolean(args.getString("runFirebaseTests")));
+
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        auth = FirebaseSetup.getAuth(context);
+        shards = UserShards.getInstance(context);
+
+        String email = "offline-" + Long.toString(System.currentTimeMillis(), 36) + "@example.com";
+        uid = Tasks.await(auth.createUserWithEmailAndPassword(email, "password1"), 60, TimeUnit.SECONDS)
+                .getUser().getUid();
+        Tasks.await(shards.updateChildren(
+                EmailIndex.registrationUpdates(uid, new User("До записи", email))), 60, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            FirebaseSetup.setOnline(context, true);
+        }
+        if (auth != null) {
+            auth.signOut();
+        }
+    }
+
+    @Test
+    public void offlineWrite_updatesLocally_andReachesServerWhenOnline() throws Exception {
+        ProfileLiveData profile = ProfileLiveData.forUid(context, uid);
+        Observer<User> observer = user -> { };
+        runOnMain(() -> profile.observeForever(observer));
+        try {
+            await("Профиль не загрузился", () -> nameOf(profile).equals("До записи"), TIMEOUT_MS);
+
+            FirebaseSetup.setOnline(context, false);
+            int pendingBefore = PendingWrites.getCount();
+            shards.updateChildren(Collections.singletonMap(
+                    UserShards.USERS + "/" + uid + "/" + UserMapper.KEY_NAME, "Без сети"));
+
+            // Запись применена локально и ждёт подтверждения сервера
+            await("Профиль на экране не обновился без сети",
+                    () -> nameOf(profile).equals("Без сети"), LOCAL_UPDATE_MS);
+            assertTrue("Запись не попала в очередь", PendingWrites.getCount() > pendingBefore);
+            SystemClock.sleep(LOCAL_UPDATE_MS);
+            assertTrue("Запись подтверждена без соединения", PendingWrites.getCount() > pendingBefore);
+
+            FirebaseSetup.setOnline(context, true);
+            await("Очередь записей не опустела", () -> PendingWrites.getCount() == 0, TIMEOUT_MS);
+
+            Object server = Tasks.await(shards.userRef(uid).child(UserMapper.KEY_NAME).get(),
+                    60, TimeUnit.SECONDS).getValue();
+            assertEquals("Без сети", server);
+        } finally {
+            runOnMain(() -> profile.removeObserver(observer));
+        }
+    }
+
+    /** Имя из последнего опубликованного профиля ("" — профиля ещё нет) */
+    private static String nameOf(ProfileLiveData profile) {
+        User user = profile.getValue();
+        return user == null || user.getName() == null ? "" : user.getName();
+    }
+
+    private static void runOnMain(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+
+    /**
+     * Ждёт выполнения условия не дольше timeoutMs.
+     */
+    private static void await(String message, BooleanSupplier condition, long timeoutMs) {
+        long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                throw new AssertionError(message);
+            }
+            SystemClock.sleep(50);
+        }
+    }
+}
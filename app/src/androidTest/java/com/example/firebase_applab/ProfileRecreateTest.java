@@ -0,0 +1,121 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Смена конфигурации MainActivity: профиль читается из базы один раз
+ * на N пересозданий, а пересозданные Activity не удерживаются в памяти.
+ *
+ * Чтения считаются по FirebaseMetrics ("db.loadProfile" — подключение слушателя
+ * профиля с первым ответом базы). Тест создаёт пользователя в той базе,
+ * которая настроена в res/values/config.xml, поэтому запускается явно
+ * и с включённым эмулятором (use_firebase_emulator):
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.runFirebaseTests=true
+ *
+ * Дополнительный аргумент: recreations (по умолчанию 10).
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProfileRecreateTest {
+
+    private static final String READ_METRIC = "db.loadProfile";
+
+    private Context context;
+    private Bundle args;
+    private FirebaseAuth auth;
+
+    @Before
+    public void setUp() throws Exception {
+        args = InstrumentationRegistry.getArguments();
+        Assume.assumeTrue("Тесты с Firebase отключены", Boolean.parseBoolean(args.getString("runFirebaseTests")));
+
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        auth = FirebaseSetup.getAuth(context);
+
+        // Новый пользователь с профилем — MainActivity покажет его экран
+        String email = "recreate-" + Long.toString(System.currentTimeMillis(), 36) + "@example.com";
+        String uid = Tasks.await(auth.createUserWithEmailAndPassword(email, "password1"), 60, TimeUnit.SECONDS)
+                .getUser().getUid();
+        Tasks.await(UserShards.getInstance(context).updateChildren(
+                EmailIndex.registrationUpdates(uid, new User("Пересоздание", email))), 60, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        if (auth != null) {
+            auth.signOut();
+        }
+    }
+
+    @Test
+    public void recreate_readsProfileOnce_andReleasesActivities() throws Exception {
+        int recreations = Integer.parseInt(args.getString("recreations", "10"));
+        long readsBefore = FirebaseMetrics.getCount(READ_METRIC);
+        List<WeakReference<MainActivity>> destroyed = new ArrayList<>(recreations);
+
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            awaitReads(readsBefore + 1);
+
+            for (int i = 0; i < recreations; i++) {
+                scenario.onActivity(activity -> destroyed.add(new WeakReference<>(activity)));
+                scenario.recreate();
+            }
+
+            // Пересоздания укладываются в задержку отписки ProfileLiveData — повторного чтения нет
+            SystemClock.sleep(1_000);
+            assertEquals("Чтений профиля за " + recreations + " пересозданий",
+                    1, FirebaseMetrics.getCount(READ_METRIC) - readsBefore);
+        }
+
+        for (int i = 0; i < destroyed.size(); i++) {
+            assertNull("Пересозданная Activity #" + i + " осталась в памяти", collect(destroyed.get(i)));
+        }
+    }
+
+    /**
+     * Ждёт, пока счётчик чтений дойдёт до значения, не дольше минуты.
+     */
+    private static void awaitReads(long expected) {
+        long deadline = SystemClock.elapsedRealtime() + TimeUnit.MINUTES.toMillis(1);
+        while (FirebaseMetrics.getCount(READ_METRIC) < expected) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                throw new AssertionError("Профиль не загрузился");
+            }
+            SystemClock.sleep(100);
+        }
+    }
+
+    /**
+     * Несколько раз запускает сборку мусора и возвращает объект, если он всё ещё достижим.
+     */
+    private static <T> T collect(WeakReference<T> ref) {
+        for (int i = 0; i < 10 && ref.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            SystemClock.sleep(100);
+        }
+        return ref.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.firebase_applab;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * AdminAccess — доступ к административным действиям
+ * (массовый импорт, обновление данных, перенос профилей между шардами).
+ *
+ * Назначение:
+ * 1. В отладочной сборке действия доступны всегда.
+ * 2. В остальных сборках — только пользователю с custom claim "admin": true
+ *    (выдаётся через Admin SDK: setCustomUserClaims(uid, {admin: true})).
+ *
+ * Это только скрывает действия в интерфейсе. Запись чужих профилей и индекса
+ * должны запрещать правила базы данных (auth.token.admin === true).
+ */
+public final class AdminAccess {
+
+    /** Имя custom claim администратора */
+    public static final String CLAIM = "admin";
+
+    private AdminAccess() {
+        // Утилитный класс
+    }
+
+    /**
+     * Проверяет, доступны ли административные действия текущему пользователю.
+     * Claims читаются из закэшированного ID-токена; ошибка чтения означает «нет доступа».
+     *
+     * @return задача: true, если действия доступны
+     */
+    public static Task<Boolean> check(FirebaseAuth auth) {
+        if (BuildConfig.DEBUG) {
+            return Tasks.forResult(true);
+        }
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) {
+            return Tasks.forResult(false);
+        }
+        return user.getIdToken(false).continueWith(task -> task.isSuccessful()
+                && Boolean.TRUE.equals(task.getResult().getClaims().get(CLAIM)));
+    }
+}
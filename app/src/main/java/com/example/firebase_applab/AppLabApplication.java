@@ -0,0 +1,24 @@
+package com.example.firebase_applab;
+
+import android.app.Application;
+import android.os.SystemClock;
+
+/**
+ * AppLabApplication — класс приложения.
+ *
+ * Назначение:
+ * 1. Замеряет время главного потока в Application.onCreate() как этап старта.
+ * 2. Сам ничего тяжёлого не делает: Firebase настраивается в фоне
+ *    инициализатором App Startup (FirebaseInitializer), а остальные
+ *    синглтоны (кэш профилей, очередь записи, статус «в сети») создаются
+ *    лениво при первом обращении с экрана.
+ */
+public class AppLabApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        long start = SystemClock.uptimeMillis();
+        super.onCreate();
+        StartupTimer.recordStage(StartupTimer.STAGE_APPLICATION, SystemClock.uptimeMillis() - start);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.FirebaseTooManyRequestsException;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * AuthClient — устойчивый клиент Firebase Authentication для экранов входа и регистрации.
+ *
+ * Назначение:
+ * 1. Повторяет запрос при временных ошибках (нет сети, слишком много запросов)
+ *    с экспоненциальной задержкой и случайной составляющей (jitter),
+ *    чтобы повторы разных клиентов не приходили одновременно.
+ * 2. При серии временных ошибок срабатывает CircuitBreaker: запросы сразу завершаются
+ *    ошибкой AuthUnavailableException, не нагружая сервис во время сбоя.
+ * 3. Повторный вызов с теми же email и паролем во время выполнения запроса не создаёт
+ *    второй запрос — возвращается уже выполняющаяся задача (например, для пересозданного
+ *    экрана). Экран сам не должен подписываться на неё дважды: на время запроса
+ *    кнопка отключается.
+ * 4. Создание аккаунта не идемпотентно: если повтор после временной ошибки получил
+ *    «email уже занят», аккаунт мог создать предыдущий запрос, ответ на который
+ *    не дошёл. Тогда выполняется вход с тем же паролем, и при успехе регистрация
+ *    считается выполненной.
+ * 5. Для тестов позволяет внедрять ошибки (setFaultInjector) — например,
+ *    при работе с локальным эмулятором Auth.
+ *
+ * Все методы вызываются из главного потока.
+ */
+public class AuthClient {
+
+    private static final String TAG = "AuthClient";
+
+    /** Максимальное количество попыток одного запроса */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Начальная задержка между попытками */
+    private static final long BASE_BACKOFF_MS = 500;
+
+    /** Количество временных ошибок подряд, после которого выключатель открывается */
+    private static final int BREAKER_THRESHOLD = 5;
+
+    /** Сколько запросы отклоняются сразу после срабатывания выключателя */
+    private static final long BREAKER_OPEN_MS = 30_000;
+
+    /**
+     * Внедрение ошибок для тестов.
+     */
+    public interface FaultInjector {
+        /**
+         * @param operation имя операции ("auth.signIn", "auth.createUser")
+         * @return исключение, которым нужно завершить попытку, или null — выполнить её как обычно
+         */
+        Exception maybeFail(String operation);
+    }
+
+    /**
+     * Сервис аутентификации временно недоступен (сработал CircuitBreaker).
+     */
+    public static class AuthUnavailableException extends Exception {
+        AuthUnavailableException() {
+            super("Сервис входа временно недоступен. Попробуйте позже.");
+        }
+    }
+
+    private static AuthClient instance;
+
+    private final FirebaseAuth auth;
+    private final CircuitBreaker breaker =
+            new CircuitBreaker(BREAKER_THRESHOLD, BREAKER_OPEN_MS, SystemClock::elapsedRealtime);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random jitter = new Random();
+
+    /** Выполняющиеся запросы по ключу "операция:email:хэш пароля" */
+    private final Map<String, Task<AuthResult>> inFlight = new HashMap<>();
+
+    private FaultInjector faultInjector;
+
+    AuthClient(FirebaseAuth auth) {
+        this.auth = auth;
+    }
+
+    public static AuthClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new AuthClient(FirebaseSetup.getAuth(context));
+        }
+        return instance;
+    }
+
+    /** Вход по email и паролю */
+    public Task<AuthResult> signIn(String email, String password) {
+        return execute("auth.signIn", email, password,
+                () -> auth.signInWithEmailAndPassword(email, password), null);
+    }
+
+    /**
+     * Создание аккаунта по email и паролю. Если аккаунт создан одной из попыток,
+     * ответ на которую потерян, задача завершается результатом входа в него.
+     */
+    public Task<AuthResult> createUser(String email, String password) {
+        return execute("auth.createUser", email, password,
+                () -> auth.createUserWithEmailAndPassword(email, password),
+                () -> auth.signInWithEmailAndPassword(email, password));
+    }
+
+    /** Количество запросов, отклонённых выключателем без обращения к сервису */
+    public long getShortCircuitedCount() {
+        return breaker.getShortCircuitedCount();
+    }
+
+    public void setFaultInjector(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    /**
+     * Выполняет запрос с защитой от повторных нажатий, повторами и выключателем.
+     *
+     * @param recovery запрос, которым проверяется результат потерянной попытки,
+     *                 если повтор получил FirebaseAuthUserCollisionException (null — не проверять)
+     */
+    private Task<AuthResult> execute(String operation, String email, String password,
+                                     Supplier<Task<AuthResult>> call, Supplier<Task<AuthResult>> recovery) {
+        String key = operation + ":" + email + ":" + Integer.toHexString(password.hashCode());
+        Task<AuthResult> running = inFlight.get(key);
+        if (running != null) {
+            Log.d(TAG, "Запрос уже выполняется: " + operation);
+            return running;
+        }
+
+        TaskCompletionSource<AuthResult> result = new TaskCompletionSource<>();
+        Task<AuthResult> task = result.getTask();
+        inFlight.put(key, task);
+        task.addOnCompleteListener(done -> inFlight.remove(key));
+
+        attempt(operation, call, recovery, 1, result);
+        return task;
+    }
+
+    /**
+     * Одна попытка запроса; при временной ошибке планирует следующую.
+     */
+    private void attempt(String operation, Supplier<Task<AuthResult>> call, Supplier<Task<AuthResult>> recovery,
+                         int attempt, TaskCompletionSource<AuthResult> result) {
+        if (!breaker.allowRequest()) {
+            FirebaseMetrics.increment("auth.breaker.shortCircuited");
+            result.setException(new AuthUnavailableException());
+            return;
+        }
+
+        Exception fault = faultInjector != null ? faultInjector.maybeFail(operation) : null;
+        Task<AuthResult> pending = fault != null ? Tasks.forException(fault) : call.get();
+
+        FirebaseMetrics.track(operation, pending).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                breaker.recordSuccess();
+                result.setResult(task.getResult());
+                return;
+            }
+
+            Exception e = task.getException();
+            if (attempt > 1 && recovery != null && e instanceof FirebaseAuthUserCollisionException) {
+                // Предыдущая попытка могла выполниться на сервере — проверяем входом
+                breaker.recordSuccess();
+                FirebaseMetrics.track(operation + ".recover", recovery.get()).addOnCompleteListener(recovered -> {
+                    if (recovered.isSuccessful()) {
+                        result.setResult(recovered.getResult());
+                    } else {
+                        // Аккаунт создан не нами — пароль не подошёл
+                        result.setException(e);
+                    }
+                });
+                return;
+            }
+            if (!isTransient(e)) {
+                // Неверный пароль и т.п. — сервис доступен, повтор не поможет
+                breaker.recordSuccess();
+                result.setException(e);
+                return;
+            }
+
+            breaker.recordFailure();
+            if (attempt >= MAX_ATTEMPTS) {
+                result.setException(e);
+                return;
+            }
+
+            long delay = BASE_BACKOFF_MS << (attempt - 1);
+            delay = delay / 2 + (long) (jitter.nextDouble() * delay / 2);
+            Log.d(TAG, operation + ": временная ошибка, повтор через " + delay + " мс");
+            mainHandler.postDelayed(() -> attempt(operation, call, recovery, attempt + 1, result), delay);
+        });
+    }
+
+    /** Временная ли ошибка (имеет смысл повторить) */
+    private static boolean isTransient(Exception e) {
+        return e instanceof FirebaseNetworkException || e instanceof FirebaseTooManyRequestsException;
+    }
+}
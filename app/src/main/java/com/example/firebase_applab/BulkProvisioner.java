@@ -0,0 +1,639 @@
+package com.example.firebase_applab;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.FirebaseTooManyRequestsException;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
+import com.google.firebase.database.DatabaseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * BulkProvisioner — массовое создание аккаунтов из CSV-файла.
+ *
+ * Назначение:
+ * 1. Читает CSV построчно (name,email), не загружая файл в память целиком.
+ * 2. Создаёт аккаунты в Firebase Authentication в CONCURRENCY параллельных потоках.
+ *    Очередь между чтением файла и потоками ограничена (QUEUE_CAPACITY):
+ *    если потоки не успевают, чтение файла приостанавливается.
+ * 3. Повторяет временные ошибки (нет сети, слишком много запросов)
+ *    с экспоненциальной задержкой.
+ * 4. Записывает профили и индекс email (EmailIndex) порциями по BATCH_SIZE:
+ *    multi-path updateChildren() на каждый шард профилей и на основную базу (UserShards).
+ * 5. Пишет результат по каждой строке в файл отчёта
+ *    (номер строки, email, статус, uid, ошибка).
+ * 6. Сохраняет контрольную точку — номер строки, до которой включительно всё обработано,
+ *    и номера строк с временной ошибкой (аккаунт или профиль не сохранены).
+ *    Повторный запуск с тем же файлом контрольной точки продолжает после неё
+ *    и заново обрабатывает только эти строки. В памяти держатся лишь строки,
+ *    которые сейчас в работе, и строки для повтора — не весь файл.
+ * 7. Запоминает uid созданных аккаунтов в журнале рядом с контрольной точкой.
+ *    Если при повторном запуске email уже зарегистрирован, uid берётся из журнала
+ *    или индекса email, и дописываются недостающие профиль и запись индекса.
+ *
+ * Аккаунты создаются со случайным паролем; пользователи задают свой пароль через
+ * восстановление пароля. Метод run() блокирующий — его нужно вызывать не из главного потока.
+ */
+public class BulkProvisioner {
+
+    private static final String TAG = "BulkProvisioner";
+
+    /** Количество параллельных потоков создания аккаунтов */
+    private static final int CONCURRENCY = 8;
+
+    /** Ёмкость очереди строк между чтением файла и потоками */
+    private static final int QUEUE_CAPACITY = CONCURRENCY * 4;
+
+    /** Количество профилей в одной записи в базу */
+    private static final int BATCH_SIZE = 100;
+
+    /** Максимальное количество попыток для временных ошибок */
+    private static final int MAX_ATTEMPTS = 4;
+
+    /** Начальная задержка между попытками */
+    private static final long BASE_BACKOFF_MS = 500;
+
+    // Статусы строк в отчёте
+    private static final String STATUS_CREATED = "CREATED";
+    private static final String STATUS_RESUMED = "RESUMED";
+    private static final String STATUS_EXISTS = "EXISTS";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String STATUS_SKIPPED = "SKIPPED";
+
+    /** Маркер конца очереди для потоков */
+    private static final Row END = new Row(-1, null, null);
+
+    /**
+     * Получатель прогресса. Методы вызываются в главном потоке.
+     * existing — строки, аккаунт которых уже был (в том числе создан прерванным запуском).
+     */
+    public interface Listener {
+        void onProgress(int processed, int created, int existing, int failed);
+
+        void onFinished(int processed, int created, int existing, int failed, Exception error);
+    }
+
+    /** FirebaseAuth для создания аккаунтов (см. FirebaseSetup.getProvisioningAuth) */
+    private final FirebaseAuth auth;
+
+    /** Базы данных профилей (профили — в шарды, индекс email — в основную базу) */
+    private final UserShards shards;
+
+    /** Файл контрольной точки */
+    private final File checkpointFile;
+
+    /** Файл отчёта (дописывается при продолжении) */
+    private final File reportFile;
+
+    /** Журнал созданных аккаунтов: строки "номер строки,uid" */
+    private final File createdFile;
+
+    /** uid аккаунтов, созданных в предыдущих запусках (после контрольной точки или для повтора) */
+    private final Map<Long, String> createdUids = new HashMap<>();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SecureRandom passwordRandom = new SecureRandom();
+    private final Random jitter = new Random();
+
+    /** Профили, ожидающие записи в базу */
+    private final List<Row> pendingBatch = new ArrayList<>();
+
+    /** Строки, обработанные после контрольной точки, но не подряд */
+    private final TreeSet<Long> doneAhead = new TreeSet<>();
+
+    /** Последняя строка, до которой включительно всё обработано */
+    private long watermark;
+
+    /** Строки до контрольной точки, которые предыдущий запуск не записал; ещё не повторены */
+    private final TreeSet<Long> retryLines = new TreeSet<>();
+
+    /** Строки, не записанные в этом запуске (повторит следующий запуск) */
+    private final TreeSet<Long> incompleteLines = new TreeSet<>();
+
+    private BufferedWriter report;
+    private BufferedWriter createdLog;
+    private Listener listener;
+    private int processed;
+    private int created;
+    private int existing;
+    private int failed;
+
+    public BulkProvisioner(FirebaseAuth auth, UserShards shards, File checkpointFile, File reportFile) {
+        this.auth = auth;
+        this.shards = shards;
+        this.checkpointFile = checkpointFile;
+        this.reportFile = reportFile;
+        this.createdFile = new File(checkpointFile.getPath() + ".uids");
+    }
+
+    /**
+     * Обрабатывает CSV-файл. Блокирует поток до завершения.
+     *
+     * @param csv      содержимое файла (строки "name,email")
+     * @param listener получатель прогресса
+     */
+    public void run(InputStream csv, Listener listener) {
+        this.listener = listener;
+
+        Exception error = null;
+        try {
+            watermark = readCheckpoint();
+            readCreatedUids();
+            report = new BufferedWriter(new FileWriter(reportFile, true));
+            createdLog = new BufferedWriter(new FileWriter(createdFile, true));
+            process(csv);
+            flushBatch();
+            // Файл прочитан целиком: оставшихся строк для повтора в нём больше нет
+            retryLines.clear();
+
+            if (!incompleteLines.isEmpty()) {
+                // Эти строки будут повторены при следующем запуске
+                Log.w(TAG, "Не записано строк: " + incompleteLines.size());
+                saveCheckpoint();
+            } else {
+                // Файл обработан полностью — контрольная точка и журнал больше не нужны
+                closeReport();
+                if (!checkpointFile.delete() && checkpointFile.exists()) {
+                    Log.w(TAG, "Не удалось удалить контрольную точку");
+                }
+                if (!createdFile.delete() && createdFile.exists()) {
+                    Log.w(TAG, "Не удалось удалить журнал созданных аккаунтов");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            Log.e(TAG, "Импорт прерван", e);
+            error = e;
+            saveCheckpoint();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            closeReport();
+        }
+
+        Exception result = error;
+        int p = processed, c = created, e = existing, f = failed;
+        mainHandler.post(() -> listener.onFinished(p, c, e, f, result));
+    }
+
+    /**
+     * Читает файл и раздаёт строки потокам через ограниченную очередь.
+     */
+    private void process(InputStream csv) throws IOException, InterruptedException {
+        BlockingQueue<Row> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        List<Thread> workers = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            Thread worker = new Thread(() -> workerLoop(queue), "provisioning-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        boolean stopped = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (isDone(lineNumber)) {
+                    continue; // Уже обработано в предыдущем запуске
+                }
+                Row row = parse(lineNumber, line);
+                if (row == null) {
+                    finish(lineNumber, null, STATUS_SKIPPED, null, "некорректная строка", true);
+                    continue;
+                }
+                // Блокируется, если потоки не успевают — так работает обратное давление
+                queue.put(row);
+            }
+        } catch (InterruptedException e) {
+            // Импорт остановлен — останавливаем и потоки, не дожидаясь очереди
+            stopped = true;
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            throw e;
+        } finally {
+            if (!stopped) {
+                for (int i = 0; i < CONCURRENCY; i++) {
+                    queue.put(END);
+                }
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+    }
+
+    /**
+     * Разбирает строку "name,email". Email не может содержать запятую,
+     * поэтому строка делится по последней запятой — имя может содержать запятые.
+     *
+     * @return строка или null, если она некорректна (в том числе заголовок)
+     */
+    private static Row parse(long lineNumber, String line) {
+        int comma = line.lastIndexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        String name = unquote(line.substring(0, comma));
+        String email = unquote(line.substring(comma + 1));
+        if (name.isEmpty() || email.indexOf('@') <= 0) {
+            return null;
+        }
+        return new Row(lineNumber, name, email);
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * Цикл потока: создаёт аккаунт и передаёт профиль в очередь записи в базу.
+     */
+    private void workerLoop(BlockingQueue<Row> queue) {
+        try {
+            while (true) {
+                Row row = queue.take();
+                if (row == END) {
+                    return;
+                }
+                try {
+                    row.uid = createAccount(row.email);
+                    recordCreated(row);
+                    row.status = STATUS_CREATED;
+                    row.updates = EmailIndex.registrationUpdates(row.uid, new User(row.name, row.email));
+                    addToBatch(row);
+                } catch (FirebaseAuthUserCollisionException e) {
+                    resumeExisting(row);
+                } catch (InterruptedException e) {
+                    // Импорт остановлен: строка не завершена и будет повторена при следующем запуске
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    // Постоянная ошибка (например, некорректный email) при повторе не исчезнет
+                    finish(row.lineNumber, row.email, STATUS_FAILED, null, FirebaseMetrics.categoryOf(e), !isTransient(e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Создаёт аккаунт, повторяя временные ошибки.
+     *
+     * @return uid созданного пользователя
+     */
+    private String createAccount(String email) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return Tasks.await(FirebaseMetrics.track("provision.createUser",
+                        auth.createUserWithEmailAndPassword(email, randomPassword())))
+                        .getUser().getUid();
+            } catch (ExecutionException e) {
+                Exception cause = (Exception) e.getCause();
+                if (attempt >= MAX_ATTEMPTS || !isTransient(cause)) {
+                    throw cause;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Аккаунт с этим email уже есть — возможно, его создал прерванный запуск
+     * до записи профиля. Находит uid (журнал, затем индекс email) и ставит
+     * в порцию недостающие профиль и запись индекса.
+     */
+    private void resumeExisting(Row row) throws InterruptedException {
+        try {
+            String indexed = Tasks.await(EmailIndex.findUid(shards.getPrimaryRoot(), row.email));
+            String uid;
+            synchronized (this) {
+                uid = createdUids.get(row.lineNumber);
+            }
+            if (uid == null) {
+                uid = indexed;
+            }
+            if (uid == null) {
+                // Аккаунт создан не импортом — его uid клиентскому SDK не узнать
+                finish(row.lineNumber, row.email, STATUS_EXISTS, null, "uid неизвестен", true);
+                return;
+            }
+
+            Map<String, Object> updates = new HashMap<>(2);
+            if (!Tasks.await(shards.getUser(uid)).exists()) {
+                updates.put(UserShards.USERS + "/" + uid, UserMapper.toMap(new User(row.name, row.email)));
+            }
+            if (!uid.equals(indexed)) {
+                updates.put(EmailIndex.NODE + "/" + EmailIndex.escape(row.email), uid);
+            }
+            if (updates.isEmpty()) {
+                finish(row.lineNumber, row.email, STATUS_EXISTS, uid, null, true);
+                return;
+            }
+            row.uid = uid;
+            row.status = STATUS_RESUMED;
+            row.updates = updates;
+            addToBatch(row);
+        } catch (ExecutionException e) {
+            Exception cause = (Exception) e.getCause();
+            finish(row.lineNumber, row.email, STATUS_FAILED, null,
+                    "проверка не выполнена: " + FirebaseMetrics.categoryOf(cause), false);
+        }
+    }
+
+    /**
+     * Добавляет профиль в текущую порцию; заполненная порция записывается
+     * в базу в этом же потоке (поток ждёт записи — это ограничивает число порций в работе).
+     */
+    private void addToBatch(Row row) throws InterruptedException {
+        List<Row> batch = null;
+        synchronized (pendingBatch) {
+            pendingBatch.add(row);
+            if (pendingBatch.size() >= BATCH_SIZE) {
+                batch = new ArrayList<>(pendingBatch);
+                pendingBatch.clear();
+            }
+        }
+        if (batch != null) {
+            writeBatch(batch);
+        }
+    }
+
+    /** Записывает оставшиеся профили после завершения всех потоков */
+    private void flushBatch() throws InterruptedException {
+        List<Row> batch;
+        synchronized (pendingBatch) {
+            batch = new ArrayList<>(pendingBatch);
+            pendingBatch.clear();
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Записывает порцию профилей и записей индекса (см. UserShards.updateChildren()).
+     */
+    private void writeBatch(List<Row> batch) throws InterruptedException {
+        Map<String, Object> updates = new HashMap<>(batch.size() * 2);
+        for (Row row : batch) {
+            updates.putAll(row.updates);
+        }
+
+        String error = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Tasks.await(FirebaseMetrics.track("provision.batchWrite", shards.updateChildren(updates)));
+                break;
+            } catch (ExecutionException e) {
+                Exception cause = (Exception) e.getCause();
+                if (attempt >= MAX_ATTEMPTS || !isTransient(cause)) {
+                    // Аккаунт создан, но профиль не записан — это видно в отчёте по uid
+                    error = "профиль не сохранён: " + FirebaseMetrics.categoryOf(cause);
+                    break;
+                }
+                backoff(attempt);
+            }
+        }
+
+        for (Row row : batch) {
+            // Незаписанная строка будет повторена при следующем запуске
+            finish(row.lineNumber, row.email, error == null ? row.status : STATUS_FAILED, row.uid, error,
+                    error == null);
+        }
+        saveCheckpoint();
+        int p = processed, c = created, e = existing, f = failed;
+        mainHandler.post(() -> listener.onProgress(p, c, e, f));
+    }
+
+    /**
+     * Фиксирует итог строки в отчёте и сдвигает контрольную точку.
+     *
+     * @param complete строка записана полностью (или повтор ничего не изменит);
+     *                 иначе она сохраняется в контрольной точке для повтора
+     */
+    private synchronized void finish(long lineNumber, String email, String status, String uid, String error,
+                                     boolean complete) {
+        try {
+            report.write(lineNumber + "," + (email == null ? "" : email) + "," + status + ","
+                    + (uid == null ? "" : uid) + "," + (error == null ? "" : error));
+            report.newLine();
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось записать отчёт", e);
+        }
+
+        if (STATUS_CREATED.equals(status) || STATUS_RESUMED.equals(status)) {
+            created++;
+        } else if (STATUS_EXISTS.equals(status)) {
+            existing++;
+        } else if (!STATUS_SKIPPED.equals(status)) {
+            failed++;
+        }
+        processed++;
+
+        // Незаписанная строка запоминается для повтора и контрольную точку не задерживает
+        retryLines.remove(lineNumber);
+        if (!complete) {
+            incompleteLines.add(lineNumber);
+        }
+        if (lineNumber <= watermark) {
+            return; // Повтор строки из предыдущего запуска
+        }
+        // Контрольная точка сдвигается только по непрерывной последовательности строк
+        doneAhead.add(lineNumber);
+        while (!doneAhead.isEmpty() && doneAhead.first() == watermark + 1) {
+            watermark = doneAhead.pollFirst();
+        }
+    }
+
+    /**
+     * Временная ли ошибка (имеет смысл повторить).
+     * Ошибки записи в базу приходят как DatabaseException без кода,
+     * поэтому они повторяются всегда — не более MAX_ATTEMPTS раз.
+     */
+    private static boolean isTransient(Exception e) {
+        return e instanceof FirebaseNetworkException
+                || e instanceof FirebaseTooManyRequestsException
+                || e instanceof DatabaseException;
+    }
+
+    /** Экспоненциальная задержка со случайной составляющей */
+    private void backoff(int attempt) throws InterruptedException {
+        long delay = BASE_BACKOFF_MS << (attempt - 1);
+        Thread.sleep(delay / 2 + (long) (jitter.nextDouble() * delay / 2));
+    }
+
+    private String randomPassword() {
+        byte[] bytes = new byte[18];
+        passwordRandom.nextBytes(bytes);
+        return Base64.encodeToString(bytes, Base64.NO_WRAP | Base64.URL_SAFE);
+    }
+
+    /** Обработана ли строка предыдущими запусками */
+    private synchronized boolean isDone(long lineNumber) {
+        return lineNumber <= watermark && !retryLines.contains(lineNumber);
+    }
+
+    /**
+     * Читает контрольную точку: первая строка — номер строки CSV, до которой всё обработано,
+     * следующие — номера строк для повтора.
+     */
+    private long readCheckpoint() throws IOException {
+        retryLines.clear();
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(checkpointFile))) {
+            String line = reader.readLine();
+            long checkpoint = line == null ? 0 : Long.parseLong(line.trim());
+            while ((line = reader.readLine()) != null) {
+                retryLines.add(Long.parseLong(line.trim()));
+            }
+            Log.i(TAG, "Продолжение с контрольной точки: строка " + checkpoint
+                    + ", строк для повтора: " + retryLines.size());
+            return checkpoint;
+        } catch (NumberFormatException e) {
+            retryLines.clear();
+            return 0;
+        }
+    }
+
+    /**
+     * Загружает из журнала uid аккаунтов, созданных после контрольной точки.
+     */
+    private void readCreatedUids() throws IOException {
+        createdUids.clear();
+        if (!createdFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(createdFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma <= 0) {
+                    continue; // Строка, оборванная при завершении процесса
+                }
+                try {
+                    long lineNumber = Long.parseLong(line.substring(0, comma));
+                    if (lineNumber > watermark || retryLines.contains(lineNumber)) {
+                        createdUids.put(lineNumber, line.substring(comma + 1));
+                    }
+                } catch (NumberFormatException e) {
+                    // Пропускаем повреждённую строку
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает uid созданного аккаунта в журнал до записи профиля,
+     * чтобы повторный запуск мог дописать профиль.
+     */
+    private synchronized void recordCreated(Row row) {
+        try {
+            createdLog.write(row.lineNumber + "," + row.uid);
+            createdLog.newLine();
+            createdLog.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось записать журнал созданных аккаунтов", e);
+        }
+    }
+
+    /**
+     * Сохраняет контрольную точку через временный файл, чтобы не оставить
+     * её повреждённой при завершении процесса во время записи.
+     */
+    private synchronized void saveCheckpoint() {
+        if (report == null) {
+            return;
+        }
+        try {
+            report.flush();
+            File tmp = new File(checkpointFile.getPath() + ".tmp");
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(tmp, false))) {
+                writer.write(Long.toString(watermark));
+                // Строки для повтора: не записанные в этом запуске и ещё не повторённые из прошлого
+                TreeSet<Long> retry = new TreeSet<>(retryLines);
+                retry.addAll(incompleteLines);
+                for (long lineNumber : retry) {
+                    writer.newLine();
+                    writer.write(Long.toString(lineNumber));
+                }
+            }
+            if (!tmp.renameTo(checkpointFile)) {
+                Log.w(TAG, "Не удалось сохранить контрольную точку");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось сохранить контрольную точку", e);
+        }
+        Log.d(TAG, "Контрольная точка: строка " + watermark);
+    }
+
+    private synchronized void closeReport() {
+        if (report == null) {
+            return;
+        }
+        try {
+            report.close();
+            if (createdLog != null) {
+                createdLog.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось закрыть отчёт", e);
+        }
+        report = null;
+        createdLog = null;
+    }
+
+    /**
+     * Строка CSV-файла.
+     */
+    private static final class Row {
+        final long lineNumber;
+        final String name;
+        final String email;
+        String uid;
+
+        /** Статус после записи: CREATED или RESUMED */
+        String status;
+
+        /** Пути и значения для записи в базу */
+        Map<String, Object> updates;
+
+        Row(long lineNumber, String name, String email) {
+            this.lineNumber = lineNumber;
+            this.name = name;
+            this.email = email;
+        }
+    }
+}
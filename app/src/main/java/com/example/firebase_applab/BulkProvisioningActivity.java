@@ -0,0 +1,136 @@
+package com.example.firebase_applab;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BulkProvisioningActivity — экран массового создания аккаунтов из CSV.
+ *
+ * Назначение:
+ * 1. Позволяет выбрать CSV-файл со строками "name,email".
+ * 2. Запускает BulkProvisioner в фоновом потоке и показывает прогресс.
+ * 3. Для каждого файла хранит свою контрольную точку, поэтому повторный выбор
+ *    того же файла после прерывания продолжает импорт с места остановки.
+ *
+ * Отчёт по строкам сохраняется во внутреннем хранилище приложения (provisioning_*.csv).
+ * Экран доступен только администратору (AdminAccess).
+ */
+public class BulkProvisioningActivity extends AppCompatActivity {
+
+    /** Поток импорта — один на процесс, чтобы два импорта не шли одновременно */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Кнопка выбора файла */
+    private Button btnPickCsv;
+
+    /** Текст с прогрессом импорта */
+    private TextView tvStatus;
+
+    /** Индикатор выполнения */
+    private ProgressBar progressBar;
+
+    /** Выбор CSV-файла через системный диалог */
+    private final ActivityResultLauncher<String[]> pickCsv =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::startImport);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_bulk_provisioning);
+
+        // Привязка элементов интерфейса
+        btnPickCsv = findViewById(R.id.btnPickCsv);
+        tvStatus = findViewById(R.id.tvProvisioningStatus);
+        progressBar = findViewById(R.id.provisioningProgressBar);
+
+        btnPickCsv.setOnClickListener(v -> pickCsv.launch(new String[]{"text/*"}));
+
+        // Выбор файла недоступен, пока не подтверждён доступ администратора
+        btnPickCsv.setEnabled(false);
+        AdminAccess.check(FirebaseSetup.getAuth(this)).addOnSuccessListener(this, admin -> {
+            if (admin) {
+                btnPickCsv.setEnabled(true);
+            } else {
+                Toast.makeText(BulkProvisioningActivity.this, "Импорт доступен только администратору", Toast.LENGTH_LONG).show();
+                finish();
+            }
+        });
+    }
+
+    /**
+     * Запускает импорт выбранного файла.
+     *
+     * @param uri адрес файла (null — пользователь отменил выбор)
+     */
+    private void startImport(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+
+        // Имена файлов контрольной точки и отчёта зависят от выбранного файла
+        String id = Integer.toHexString(uri.toString().hashCode());
+        File checkpoint = new File(getFilesDir(), "provisioning_" + id + ".checkpoint");
+        File report = new File(getFilesDir(), "provisioning_" + id + ".csv");
+
+        BulkProvisioner provisioner = new BulkProvisioner(
+                FirebaseSetup.getProvisioningAuth(this),
+                UserShards.getInstance(this),
+                checkpoint, report);
+
+        btnPickCsv.setEnabled(false);
+        progressBar.setVisibility(View.VISIBLE);
+        tvStatus.setText("Импорт начат...");
+
+        executor.execute(() -> {
+            try (InputStream csv = getContentResolver().openInputStream(uri)) {
+                provisioner.run(csv, new BulkProvisioner.Listener() {
+                    @Override
+                    public void onProgress(int processed, int created, int existing, int failed) {
+                        if (!isDestroyed()) {
+                            tvStatus.setText(statusText(processed, created, existing, failed));
+                        }
+                    }
+
+                    @Override
+                    public void onFinished(int processed, int created, int existing, int failed, Exception error) {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        btnPickCsv.setEnabled(true);
+                        progressBar.setVisibility(View.GONE);
+                        tvStatus.setText((error == null ? "Импорт завершён.\n" : "Импорт прерван.\n")
+                                + statusText(processed, created, existing, failed)
+                                + "\nОтчёт: " + report.getName());
+                    }
+                });
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    btnPickCsv.setEnabled(true);
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(BulkProvisioningActivity.this,
+                            "Не удалось открыть файл: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
+    private static String statusText(int processed, int created, int existing, int failed) {
+        return "Обработано строк: " + processed + "\nСоздано: " + created
+                + "\nУже зарегистрированы: " + existing + "\nОшибок: " + failed;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.firebase_applab;
+
+import java.util.function.LongSupplier;
+
+/**
+ * CircuitBreaker — автоматический выключатель для обращений к внешнему сервису.
+ *
+ * Назначение:
+ * 1. После failureThreshold временных ошибок подряд переходит в состояние OPEN
+ *    и openDurationMs отклоняет запросы сразу, не нагружая сервис.
+ * 2. По истечении этого времени пропускает один пробный запрос (HALF_OPEN):
+ *    успех закрывает выключатель, ошибка снова открывает его.
+ * 3. Считает запросы, отклонённые без обращения к сервису.
+ *
+ * Класс не зависит от Android API; время передаётся через clock, что позволяет
+ * проверять его на JVM.
+ */
+public class CircuitBreaker {
+
+    /** Состояние выключателя */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMs;
+    private boolean probeInFlight;
+    private long shortCircuited;
+
+    /**
+     * @param failureThreshold количество ошибок подряд, после которого выключатель открывается
+     * @param openDurationMs   сколько миллисекунд запросы отклоняются сразу
+     * @param clock            источник текущего времени, мс
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMs, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Можно ли выполнить запрос. Если нельзя, запрос учитывается как отклонённый.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtMs >= openDurationMs) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        shortCircuited++;
+        return false;
+    }
+
+    /** Запрос выполнен успешно (или завершился ошибкой, не связанной с доступностью сервиса) */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /** Запрос завершился временной ошибкой (сеть, перегрузка сервиса) */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtMs = clock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Количество запросов, отклонённых без обращения к сервису */
+    public synchronized long getShortCircuitedCount() {
+        return shortCircuited;
+    }
+}
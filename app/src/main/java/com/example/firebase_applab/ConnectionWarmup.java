@@ -0,0 +1,170 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ConnectionWarmup — предварительная установка соединений, пока пользователь вводит данные.
+ *
+ * Назначение:
+ * 1. Когда поле email получает фокус или ввод, инициализирует FirebaseAuth,
+ *    заранее разрешает DNS-имя сервера аутентификации и открывает соединение
+ *    с Realtime Database (подписка на ".info/connected").
+ *    Так рукопожатие TLS/WebSocket идёт параллельно с вводом, а не после нажатия кнопки.
+ * 2. Если пользователь ничего не вводит дольше IDLE_TIMEOUT_MS, подписка снимается,
+ *    и база закрывает неиспользуемое соединение — батарея не расходуется впустую.
+ * 3. Замеряет время от нажатия "Войти" до открытия MainActivity отдельно по состоянию
+ *    соединения в момент нажатия: уже установлено (login.tapToMain.connectedAtTap),
+ *    прогрев начат, но соединения ещё нет (.warmingAtTap), прогрева не было (.cold).
+ * 4. После неудачного входа (markTapFailed) снова запускает таймаут простоя,
+ *    чтобы брошенный экран входа не держал соединение открытым.
+ */
+public final class ConnectionWarmup {
+
+    private static final String TAG = "ConnectionWarmup";
+
+    /** Через сколько миллисекунд без ввода прогрев отменяется */
+    private static final long IDLE_TIMEOUT_MS = 30_000;
+
+    /** Сервер Firebase Authentication */
+    private static final String AUTH_HOST = "identitytoolkit.googleapis.com";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final ExecutorService dnsExecutor = Executors.newSingleThreadExecutor();
+
+    /** Узел состояния соединения; подписка на него открывает соединение */
+    private static DatabaseReference connectedRef;
+
+    /** Активная подписка прогрева (null — прогрев не идёт) */
+    private static ValueEventListener connectedListener;
+
+    /** Соединение с базой установлено в ходе прогрева */
+    private static boolean connected;
+
+    /** Время нажатия кнопки входа (0 — нажатия не было) */
+    private static long tapAtMs;
+
+    /** Метрика для нажатия: по состоянию соединения в момент нажатия */
+    private static String tapMetric;
+
+    /** Отмена прогрева по таймауту */
+    private static final Runnable idleTimeout = () -> {
+        Log.d(TAG, "Прогрев отменён: нет ввода " + IDLE_TIMEOUT_MS + " мс");
+        release();
+    };
+
+    private ConnectionWarmup() {
+        // Утилитный класс
+    }
+
+    /**
+     * Начинает прогрев или продлевает уже идущий. Вызывается из главного потока
+     * при фокусе и каждом изменении поля email.
+     */
+    public static void touch(Context context) {
+        mainHandler.removeCallbacks(idleTimeout);
+        mainHandler.postDelayed(idleTimeout, IDLE_TIMEOUT_MS);
+
+        if (connectedListener != null) {
+            return;
+        }
+
+        // Инициализация FirebaseAuth и разрешение DNS сервера аутентификации
+        FirebaseSetup.getAuth(context);
+        if (!context.getResources().getBoolean(R.bool.use_firebase_emulator)) {
+            dnsExecutor.execute(() -> {
+                try {
+                    InetAddress.getAllByName(AUTH_HOST);
+                } catch (Exception e) {
+                    Log.d(TAG, "Не удалось разрешить " + AUTH_HOST + ": " + e.getMessage());
+                }
+            });
+        }
+
+        // Открытие соединения с базой данных (кроме случая, когда оно отключено вручную)
+        if (!FirebaseSetup.isForcedOffline()) {
+            FirebaseSetup.getDatabase(context).goOnline();
+        }
+        connectedRef = FirebaseSetup.getDatabase(context).getReference(".info/connected");
+        connectedListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+                Log.d(TAG, "Соединение с базой: " + connected);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                connected = false;
+            }
+        };
+        connectedRef.addValueEventListener(connectedListener);
+        Log.d(TAG, "Прогрев начат");
+    }
+
+    /**
+     * Снимает подписку прогрева. Соединение закрывается самой базой,
+     * если его больше никто не использует.
+     */
+    public static void release() {
+        mainHandler.removeCallbacks(idleTimeout);
+        if (connectedListener != null) {
+            connectedRef.removeEventListener(connectedListener);
+            connectedListener = null;
+            connectedRef = null;
+        }
+        connected = false;
+    }
+
+    /**
+     * Отмечает нажатие кнопки входа. Запоминает состояние соединения в этот момент.
+     */
+    public static void markTap() {
+        tapAtMs = SystemClock.elapsedRealtime();
+        tapMetric = connected ? "login.tapToMain.connectedAtTap"
+                : connectedListener != null ? "login.tapToMain.warmingAtTap"
+                : "login.tapToMain.cold";
+        mainHandler.removeCallbacks(idleTimeout);
+    }
+
+    /**
+     * Отмечает неудачный вход: замер отменяется, а прогрев снова
+     * снимается по таймауту, если пользователь больше ничего не вводит.
+     */
+    public static void markTapFailed() {
+        tapAtMs = 0;
+        if (connectedListener != null) {
+            mainHandler.removeCallbacks(idleTimeout);
+            mainHandler.postDelayed(idleTimeout, IDLE_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Записывает время от нажатия кнопки входа до открытия MainActivity.
+     * Вызывается из MainActivity; без предшествующего нажатия ничего не делает.
+     */
+    public static void reportMainShown() {
+        if (tapAtMs == 0) {
+            return;
+        }
+        long latency = SystemClock.elapsedRealtime() - tapAtMs;
+        tapAtMs = 0;
+        FirebaseMetrics.recordLatency(tapMetric, latency);
+        Log.i(TAG, "От нажатия до MainActivity: " + latency + " мс (" + tapMetric + ")");
+        release();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.firebase_applab;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+
+/**
+ * EmailAvailabilityChecker — проверка, не зарегистрирован ли уже email.
+ *
+ * Назначение:
+ * 1. Проверяет email одним чтением индекса UsersByEmail (EmailIndex.findUid)
+ *    вместо попытки регистрации в Firebase Authentication.
+ * 2. При вводе откладывает проверку на DEBOUNCE_MS после последнего изменения;
+ *    новый ввод отменяет отложенную проверку, а ответ на устаревший запрос
+ *    слушателю не передаётся.
+ * 3. Хранит результаты в кэше по нормализованному email: занятый email
+ *    не перепроверяется, свободный — перепроверяется через AVAILABLE_TTL_MS.
+ *
+ * Индекс заполняется при регистрации через приложение и EmailIndexBackfill;
+ * аккаунт, созданный в обход приложения, проверка не увидит — такой email
+ * отклонит Firebase Authentication, и он попадёт в кэш через markTaken().
+ * Все методы вызываются из главного потока.
+ */
+public class EmailAvailabilityChecker {
+
+    private static final String TAG = "EmailAvailability";
+
+    /** Задержка проверки после последнего изменения email */
+    static final long DEBOUNCE_MS = 400;
+
+    /** Сколько доверять ответу «email свободен» */
+    static final long AVAILABLE_TTL_MS = 60_000;
+
+    /** Максимальное количество email в кэше */
+    private static final int MAX_CACHED = 64;
+
+    /** Кэш результатов по ключу EmailIndex.escape(email) */
+    private static final LruCache<String, Result> cache = new LruCache<>(MAX_CACHED);
+
+    /** Слушатель результата отложенной проверки */
+    public interface Listener {
+        /**
+         * @param email проверенный адрес
+         * @param taken зарегистрирован ли он
+         */
+        void onChecked(String email, boolean taken);
+    }
+
+    /** Корень основной базы (узел UsersByEmail) */
+    private final DatabaseReference root;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** Отложенная проверка (null — нет) */
+    private Runnable pending;
+
+    /** Номер последнего запроса; ответы на более ранние запросы отбрасываются */
+    private int generation;
+
+    public EmailAvailabilityChecker(DatabaseReference root) {
+        this.root = root;
+    }
+
+    /**
+     * Результат из кэша.
+     *
+     * @return TRUE — занят, FALSE — свободен, null — неизвестно (не проверялся или устарел)
+     */
+    public Boolean getCached(String email) {
+        Result result = cache.get(EmailIndex.escape(email));
+        if (result == null) {
+            return null;
+        }
+        if (!result.taken && SystemClock.elapsedRealtime() - result.checkedAt > AVAILABLE_TTL_MS) {
+            return null;
+        }
+        return result.taken;
+    }
+
+    /**
+     * Проверяет email сразу: из кэша или одним чтением индекса.
+     *
+     * @return задача: true, если email уже зарегистрирован
+     */
+    public Task<Boolean> check(String email) {
+        Boolean cached = getCached(email);
+        if (cached != null) {
+            FirebaseMetrics.increment("emailAvailability.cacheHit");
+            return Tasks.forResult(cached);
+        }
+        String key = EmailIndex.escape(email);
+        return FirebaseMetrics.track("db.emailAvailability", EmailIndex.findUid(root, email))
+                .continueWith(task -> {
+                    boolean taken = task.getResult() != null;
+                    cache.put(key, new Result(taken, SystemClock.elapsedRealtime()));
+                    return taken;
+                });
+    }
+
+    /**
+     * Проверяет email через DEBOUNCE_MS, если до этого не поступит новый запрос.
+     * Результат из кэша передаётся сразу. Ошибки чтения только записываются в лог:
+     * окончательное решение тогда примет Firebase Authentication.
+     */
+    public void checkDebounced(String email, Listener listener) {
+        cancel();
+        Boolean cached = getCached(email);
+        if (cached != null) {
+            listener.onChecked(email, cached);
+            return;
+        }
+        int request = generation;
+        pending = () -> {
+            pending = null;
+            check(email).addOnCompleteListener(task -> {
+                if (request != generation) {
+                    return;
+                }
+                if (task.isSuccessful()) {
+                    listener.onChecked(email, task.getResult());
+                } else {
+                    Log.w(TAG, "Не удалось проверить email", task.getException());
+                }
+            });
+        };
+        mainHandler.postDelayed(pending, DEBOUNCE_MS);
+    }
+
+    /**
+     * Отменяет отложенную проверку; ответ на уже отправленный запрос
+     * попадёт в кэш, но слушателю передан не будет.
+     */
+    public void cancel() {
+        generation++;
+        if (pending != null) {
+            mainHandler.removeCallbacks(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * Отмечает email как занятый (например, после отказа Firebase Authentication).
+     */
+    public static void markTaken(String email) {
+        cache.put(EmailIndex.escape(email), new Result(true, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Результат проверки одного email.
+     */
+    private static final class Result {
+        final boolean taken;
+        final long checkedAt;
+
+        Result(boolean taken, long checkedAt) {
+            this.taken = taken;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.firebase_applab;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * EmailIndex — индекс "email → uid" в Realtime Database.
+ *
+ * Назначение:
+ * 1. Формирует запись регистрации: профиль "Users/{uid}" и запись
+ *    индекса "UsersByEmail/{escapedEmail}" = uid. Если профили не разнесены по шардам,
+ *    они отправляются одним атомарным updateChildren() (см. UserShards.updateChildren()).
+ * 2. Находит профиль по email за два прямых чтения (индекс, затем профиль)
+ *    вместо запроса по всему узлу "Users".
+ *
+ * Индекс всегда хранится в основной базе, профили — в шардах (UserShards).
+ *
+ * Структура:
+ * UsersByEmail
+ *   └── ivan@example,com: "UID12345"
+ */
+public final class EmailIndex {
+
+    /** Узел с индексом email → uid */
+    public static final String NODE = "UsersByEmail";
+
+    private EmailIndex() {
+        // Утилитный класс
+    }
+
+    /**
+     * Нормализует email и превращает его в допустимый ключ Firebase.
+     * Ключи не могут содержать символы . # $ [ ] /, поэтому точка заменяется
+     * запятой (в email запятая недопустима), а остальные символы кодируются как %XX.
+     *
+     * @param email адрес в любом регистре, возможно с пробелами по краям
+     * @return ключ для узла UsersByEmail
+     */
+    public static String escape(String email) {
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(normalized.length() + 8);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            switch (c) {
+                case '.': key.append(','); break;
+                case '%': key.append("%25"); break;
+                case '#': key.append("%23"); break;
+                case '$': key.append("%24"); break;
+                case '[': key.append("%5B"); break;
+                case ']': key.append("%5D"); break;
+                case '/': key.append("%2F"); break;
+                default: key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Формирует multi-path обновление для регистрации пользователя:
+     * профиль и запись индекса, которые применяются атомарно.
+     *
+     * @param uid  идентификатор пользователя
+     * @param user профиль пользователя (email обязателен)
+     * @return карта "путь → значение" для updateChildren() от корня базы
+     */
+    public static Map<String, Object> registrationUpdates(String uid, User user) {
+        Map<String, Object> updates = new HashMap<>(4);
+        updates.put("Users/" + uid, UserMapper.toMap(user));
+        updates.put(NODE + "/" + escape(user.getEmail()), uid);
+        return updates;
+    }
+
+    /**
+     * Находит uid по email одним чтением узла индекса.
+     *
+     * @param root  корень базы данных
+     * @param email адрес пользователя
+     * @return задача с uid или null, если такой email не зарегистрирован
+     */
+    public static Task<String> findUid(DatabaseReference root, String email) {
+        return root.child(NODE).child(escape(email)).get()
+                .continueWith(task -> {
+                    Object uid = task.getResult().getValue();
+                    return uid == null ? null : uid.toString();
+                });
+    }
+
+    /**
+     * Находит профиль пользователя по email: чтение индекса в основной базе
+     * и чтение профиля в шарде пользователя.
+     *
+     * @param shards базы данных профилей
+     * @param email  адрес пользователя
+     * @return задача с профилем или null, если пользователь не найден
+     */
+    public static Task<User> findUser(UserShards shards, String email) {
+        return findUid(shards.getPrimaryRoot(), email).continueWithTask(task -> {
+            String uid = task.getResult();
+            if (uid == null) {
+                return Tasks.forResult(null);
+            }
+            return shards.getUser(uid)
+                    .continueWith(profile -> UserMapper.fromSnapshot(profile.getResult()));
+        });
+    }
+}
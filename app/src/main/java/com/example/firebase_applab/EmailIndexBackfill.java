@@ -0,0 +1,102 @@
+package com.example.firebase_applab;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EmailIndexBackfill — заполнение индекса UsersByEmail для уже существующих пользователей.
+ *
+ * Назначение:
+ * 1. Читает узел "Users" порциями по BATCH_SIZE записей
+ *    (orderByKey().startAfter(lastKey).limitToFirst(n)), не загружая его целиком.
+ * 2. Для каждой порции записывает индекс одним updateChildren().
+ * 3. Повторный запуск безопасен: существующие записи индекса перезаписываются тем же значением.
+ *
+ * При нескольких шардах профилей запускается для каждого шарда: профили читаются
+ * из шарда, индекс записывается в основную базу.
+ */
+public class EmailIndexBackfill {
+
+    private static final String TAG = "EmailIndexBackfill";
+
+    /** Количество профилей, читаемых и индексируемых за один шаг */
+    private static final int BATCH_SIZE = 500;
+
+    /** Корень базы, из которой читаются профили */
+    private final DatabaseReference usersRoot;
+
+    /** Корень базы, в которую записывается индекс */
+    private final DatabaseReference indexRoot;
+
+    /** Количество проиндексированных профилей */
+    private int indexed;
+
+    public EmailIndexBackfill(DatabaseReference root) {
+        this(root, root);
+    }
+
+    public EmailIndexBackfill(DatabaseReference usersRoot, DatabaseReference indexRoot) {
+        this.usersRoot = usersRoot;
+        this.indexRoot = indexRoot;
+    }
+
+    /**
+     * Запускает заполнение индекса.
+     *
+     * @return задача с количеством проиндексированных профилей
+     */
+    public Task<Integer> run() {
+        indexed = 0;
+        return nextBatch(null);
+    }
+
+    /**
+     * Читает и индексирует следующую порцию профилей после ключа lastKey.
+     */
+    private Task<Integer> nextBatch(String lastKey) {
+        Query query = usersRoot.child("Users").orderByKey();
+        if (lastKey != null) {
+            query = query.startAfter(lastKey);
+        }
+
+        return query.limitToFirst(BATCH_SIZE).get().continueWithTask(task -> {
+            DataSnapshot batch = task.getResult();
+            Map<String, Object> updates = new HashMap<>();
+            String last = null;
+
+            for (DataSnapshot child : batch.getChildren()) {
+                last = child.getKey();
+                Object email = child.child(UserMapper.KEY_EMAIL).getValue();
+                if (email != null) {
+                    updates.put(EmailIndex.NODE + "/" + EmailIndex.escape(email.toString()), last);
+                }
+            }
+
+            // Порция пустая — все профили обработаны
+            if (last == null) {
+                Log.i(TAG, "Индекс заполнен, записей: " + indexed);
+                return Tasks.forResult(indexed);
+            }
+
+            String next = last;
+            boolean lastBatch = batch.getChildrenCount() < BATCH_SIZE;
+            Task<Void> write = updates.isEmpty() ? Tasks.forResult(null) : PendingWrites.track(indexRoot.updateChildren(updates));
+            return write.continueWithTask(done -> {
+                if (!done.isSuccessful()) {
+                    return Tasks.forException(done.getException());
+                }
+                indexed += updates.size();
+                Log.d(TAG, "Проиндексировано: " + indexed);
+                return lastBatch ? Tasks.forResult(indexed) : nextBatch(next);
+            });
+        });
+    }
+}
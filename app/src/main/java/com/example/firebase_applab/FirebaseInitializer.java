@@ -0,0 +1,56 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * FirebaseInitializer — инициализатор App Startup, запускающий настройку Firebase
+ * в фоновом потоке при старте процесса.
+ *
+ * Назначение:
+ * 1. Вызывается библиотекой App Startup (InitializationProvider) до
+ *    Application.onCreate() — раньше, чем создаётся первая Activity.
+ * 2. В главном потоке только запускает фоновую задачу: FirebaseSetup.init()
+ *    (экземпляры Auth и Database, эмуляторы, persistence) и чтение сохранённой
+ *    сессии FirebaseAuth, которое нужно RouterActivity.
+ * 3. Записывает длительность этапов в StartupTimer.
+ *
+ * Сам FirebaseApp к этому моменту уже создан провайдером Firebase (FirebaseInitProvider);
+ * его компоненты создаются лениво, при первом обращении, — то есть здесь.
+ */
+public class FirebaseInitializer implements Initializer<Void> {
+
+    @NonNull
+    @Override
+    public Void create(@NonNull Context context) {
+        long start = SystemClock.uptimeMillis();
+        StartupTimer.recordStage(StartupTimer.STAGE_PROCESS_TO_INITIALIZERS, StartupTimer.sinceProcessStart());
+
+        Context appContext = context.getApplicationContext();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            long initStart = SystemClock.uptimeMillis();
+            FirebaseSetup.init(appContext);
+            FirebaseSetup.getAuth(appContext).getCurrentUser();
+            StartupTimer.recordStage(StartupTimer.STAGE_FIREBASE_INIT, SystemClock.uptimeMillis() - initStart);
+        });
+        executor.shutdown();
+
+        StartupTimer.recordStage(StartupTimer.STAGE_INITIALIZER, SystemClock.uptimeMillis() - start);
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.database.DatabaseError;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FirebaseMetrics — реестр метрик обращений к Firebase.
+ *
+ * Назначение:
+ * 1. Для каждой операции (вход, регистрация, запись и чтение профиля и т.д.)
+ *    собирает гистограмму задержек (p50/p95/p99), количество успехов и ошибок
+ *    и категории ошибок.
+ * 2. Отмечает каждую операцию секцией android.os.Trace — её видно в systrace/Perfetto.
+ * 3. Периодически сохраняет компактный снимок метрик в файл firebase_metrics.txt
+ *    во внутреннем хранилище приложения.
+ *
+ * Пример:
+ * FirebaseMetrics.track("auth.signIn", mAuth.signInWithEmailAndPassword(email, password))
+ */
+public final class FirebaseMetrics {
+
+    private static final String TAG = "FirebaseMetrics";
+
+    /** Имя файла со снимком метрик */
+    private static final String DUMP_FILE = "firebase_metrics.txt";
+
+    /** Период сохранения снимка */
+    private static final long DUMP_PERIOD_SEC = 60;
+
+    /** Метрики по имени операции */
+    private static final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    /** Источник идентификаторов для асинхронных trace-секций */
+    private static final AtomicInteger traceCookies = new AtomicInteger();
+
+    /** Планировщик сохранения снимков (создаётся при первом вызове startPeriodicDump) */
+    private static ScheduledExecutorService dumpExecutor;
+
+    private FirebaseMetrics() {
+        // Утилитный класс
+    }
+
+    /**
+     * Замеряет длительность задачи Firebase.
+     *
+     * @param operation имя операции, например "auth.signIn"
+     * @param task      задача, которую нужно замерить
+     * @return та же задача
+     */
+    public static <T> Task<T> track(String operation, Task<T> task) {
+        Timer timer = start(operation);
+        task.addOnCompleteListener(done -> {
+            if (done.isSuccessful()) {
+                timer.success();
+            } else {
+                timer.failure(categoryOf(done.getException()));
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Начинает замер операции, результат которой приходит в слушатель
+     * (например, ValueEventListener). Замер завершается вызовом success() или failure().
+     *
+     * @param operation имя операции
+     */
+    public static Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    /**
+     * Записывает в метрики произвольное значение задержки
+     * (например, время от нажатия кнопки до показа экрана).
+     */
+    public static void recordLatency(String operation, long latencyMs) {
+        statsFor(operation).record(latencyMs, null);
+    }
+
+    /**
+     * Записывает значение показателя (например, глубину очереди).
+     * Хранится в той же гистограмме, поэтому в снимке видны p50/p95/p99 и максимум.
+     */
+    public static void recordValue(String gauge, long value) {
+        statsFor(gauge).record(value, null);
+    }
+
+    /**
+     * Увеличивает счётчик события без замера задержки.
+     */
+    public static void increment(String counter) {
+        statsFor(counter).count();
+    }
+
+    /** Категория ошибки задачи Firebase */
+    public static String categoryOf(Exception e) {
+        if (e == null) {
+            return "unknown";
+        }
+        if (e instanceof FirebaseAuthException) {
+            return ((FirebaseAuthException) e).getErrorCode();
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    /** Категория ошибки Realtime Database */
+    public static String categoryOf(DatabaseError error) {
+        return "DatabaseError." + error.getCode();
+    }
+
+    /**
+     * Запускает периодическое сохранение снимка метрик в файл.
+     * Повторные вызовы ничего не делают.
+     */
+    public static synchronized void startPeriodicDump(Context context) {
+        if (dumpExecutor != null) {
+            return;
+        }
+        File file = new File(context.getApplicationContext().getFilesDir(), DUMP_FILE);
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor();
+        dumpExecutor.scheduleWithFixedDelay(() -> dump(file),
+                DUMP_PERIOD_SEC, DUMP_PERIOD_SEC, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Количество завершённых замеров операции (успехов и ошибок) или событий счётчика.
+     */
+    public static long getCount(String operation) {
+        OperationStats s = stats.get(operation);
+        return s == null ? 0 : s.total();
+    }
+
+    /**
+     * Формирует компактный текстовый снимок: одна строка на операцию.
+     */
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(stats).entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void dump(File file) {
+        try (FileWriter writer = new FileWriter(file, false)) {
+            writer.write("# " + System.currentTimeMillis() + '\n');
+            writer.write(snapshot());
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось сохранить метрики", e);
+        }
+    }
+
+    private static OperationStats statsFor(String operation) {
+        OperationStats s = stats.get(operation);
+        if (s == null) {
+            s = new OperationStats();
+            OperationStats existing = stats.putIfAbsent(operation, s);
+            if (existing != null) {
+                s = existing;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Замер одной операции. Завершается один раз; повторные вызовы игнорируются.
+     */
+    public static final class Timer {
+        private final String operation;
+        private final long startMs = SystemClock.elapsedRealtime();
+        private final int cookie = traceCookies.incrementAndGet();
+        private boolean finished;
+
+        private Timer(String operation) {
+            this.operation = operation;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.beginAsyncSection(operation, cookie);
+            }
+        }
+
+        /** Операция завершилась успешно */
+        public void success() {
+            finish(null);
+        }
+
+        /**
+         * Операция завершилась ошибкой.
+         *
+         * @param category категория ошибки (см. categoryOf)
+         */
+        public void failure(String category) {
+            finish(category);
+        }
+
+        private synchronized void finish(String errorCategory) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(operation, cookie);
+            }
+            long latency = SystemClock.elapsedRealtime() - startMs;
+            statsFor(operation).record(latency, errorCategory);
+        }
+    }
+
+    /**
+     * Метрики одной операции.
+     */
+    private static final class OperationStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final Map<String, Integer> errors = new TreeMap<>();
+        private long successes;
+        private long failures;
+
+        synchronized void record(long latencyMs, String errorCategory) {
+            histogram.record(latencyMs);
+            if (errorCategory == null) {
+                successes++;
+            } else {
+                failures++;
+                Integer count = errors.get(errorCategory);
+                errors.put(errorCategory, count == null ? 1 : count + 1);
+            }
+        }
+
+        synchronized void count() {
+            successes++;
+        }
+
+        synchronized long total() {
+            return successes + failures;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "ok=" + successes + " fail=" + failures
+                    + " p50=" + histogram.percentile(50)
+                    + " p95=" + histogram.percentile(95)
+                    + " p99=" + histogram.percentile(99)
+                    + " max=" + histogram.getMaxMs()
+                    + (errors.isEmpty() ? "" : " errors=" + errors);
+        }
+    }
+}
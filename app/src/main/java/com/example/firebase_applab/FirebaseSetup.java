@@ -0,0 +1,243 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FirebaseSetup — единая точка настройки Firebase перед первым использованием.
+ *
+ * Назначение:
+ * 1. Подключает приложение к локальным эмуляторам Auth и Realtime Database,
+ *    если это включено в res/values/config.xml (use_firebase_emulator).
+ * 2. Включает офлайн-режим (offline_first_enabled): дисковый кэш базы заданного
+ *    размера. Записи в этом режиме сохраняются локально и отправляются
+ *    на сервер при восстановлении соединения.
+ * 3. Запускает периодическое сохранение метрик FirebaseMetrics.
+ * 4. Позволяет вручную отключать и включать соединение с базой
+ *    (для проверки офлайн-режима на эмуляторе). Пока соединение отключено вручную,
+ *    прогрев (ConnectionWarmup) его не открывает.
+ * 5. Хранит настроенные экземпляры FirebaseAuth, FirebaseDatabase и корневую
+ *    ссылку базы на весь процесс: после инициализации экраны получают их
+ *    без блокировки и повторного поиска.
+ * 6. Создаёт с теми же настройками дополнительные экземпляры баз данных
+ *    по URL — шарды профилей пользователей (см. UserShards).
+ *
+ * Настройки persistence и эмулятора Firebase принимает только до первого
+ * обращения к базе, поэтому все экраны получают экземпляры через этот класс.
+ * При старте процесса init() вызывается в фоновом потоке (FirebaseInitializer);
+ * если экран обратится к Firebase раньше, он дождётся окончания инициализации,
+ * а время ожидания главного потока попадёт в разбивку старта (StartupTimer).
+ */
+public final class FirebaseSetup {
+
+    private static final String TAG = "FirebaseSetup";
+
+    /** Настройки применены успешно */
+    private static boolean initialized;
+
+    /** Настроенные экземпляры (null — init() ещё не завершён) */
+    private static volatile FirebaseAuth auth;
+    private static volatile FirebaseDatabase database;
+    private static volatile DatabaseReference root;
+
+    /** Включён ли офлайн-режим */
+    private static boolean offlineFirst;
+
+    /** Соединение с базой отключено вызовом setOnline(false) */
+    private static volatile boolean forcedOffline;
+
+    /** Имя отдельного экземпляра FirebaseApp для массового создания аккаунтов */
+    private static final String PROVISIONING_APP = "provisioning";
+
+    /** FirebaseAuth для массового создания аккаунтов (создаётся при первом запросе) */
+    private static FirebaseAuth provisioningAuth;
+
+    /** Настроенные экземпляры баз данных по URL */
+    private static final Map<String, FirebaseDatabase> databasesByUrl = new HashMap<>();
+
+    private FirebaseSetup() {
+        // Утилитный класс
+    }
+
+    /**
+     * Применяет настройки Firebase из ресурсов. Повторные вызовы ничего не делают;
+     * если предыдущий вызов завершился исключением, настройка выполняется заново.
+     *
+     * @param context любой Context приложения
+     */
+    public static synchronized void init(Context context) {
+        if (initialized) {
+            return;
+        }
+
+        FirebaseMetrics.startPeriodicDump(context);
+
+        Resources res = context.getResources();
+        FirebaseAuth firebaseAuth = FirebaseAuth.getInstance();
+        FirebaseDatabase firebaseDatabase = FirebaseDatabase.getInstance();
+
+        if (res.getBoolean(R.bool.use_firebase_emulator)) {
+            String host = res.getString(R.string.firebase_emulator_host);
+            firebaseAuth.useEmulator(host, res.getInteger(R.integer.auth_emulator_port));
+            Log.i(TAG, "Используются эмуляторы Firebase на " + host);
+        }
+
+        offlineFirst = res.getBoolean(R.bool.offline_first_enabled);
+        configure(res, firebaseDatabase);
+
+        database = firebaseDatabase;
+        root = firebaseDatabase.getReference();
+        auth = firebaseAuth;
+        initialized = true;
+    }
+
+    /**
+     * Применяет к экземпляру базы настройки эмулятора и офлайн-режима.
+     * Вызывается до первого обращения к этому экземпляру.
+     */
+    private static void configure(Resources res, FirebaseDatabase firebaseDatabase) {
+        if (res.getBoolean(R.bool.use_firebase_emulator)) {
+            firebaseDatabase.useEmulator(res.getString(R.string.firebase_emulator_host),
+                    res.getInteger(R.integer.database_emulator_port));
+        }
+        if (offlineFirst) {
+            long cacheBytes = res.getInteger(R.integer.offline_cache_size_mb) * 1024L * 1024L;
+            firebaseDatabase.setPersistenceEnabled(true);
+            firebaseDatabase.setPersistenceCacheSizeBytes(cacheBytes);
+            Log.i(TAG, "Офлайн-режим включён, кэш " + cacheBytes + " байт");
+        }
+    }
+
+    /**
+     * Выполняет init(), если он ещё не завершён. Ожидание в главном потоке
+     * (инициализация идёт в фоне или ещё не начиналась) записывается как этап старта.
+     */
+    private static void ensureInitialized(Context context) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            init(context);
+            return;
+        }
+        long start = SystemClock.uptimeMillis();
+        init(context);
+        StartupTimer.recordStage(StartupTimer.STAGE_FIREBASE_MAIN_WAIT, SystemClock.uptimeMillis() - start);
+    }
+
+    /**
+     * Возвращает настроенный экземпляр FirebaseAuth.
+     */
+    public static FirebaseAuth getAuth(Context context) {
+        if (auth == null) {
+            ensureInitialized(context);
+        }
+        return auth;
+    }
+
+    /**
+     * Возвращает отдельный экземпляр FirebaseAuth для массового создания аккаунтов.
+     * createUserWithEmailAndPassword() выполняет вход под созданным пользователем,
+     * поэтому основной экземпляр для этого использовать нельзя — текущая сессия
+     * администратора была бы заменена.
+     */
+    public static synchronized FirebaseAuth getProvisioningAuth(Context context) {
+        init(context);
+        if (provisioningAuth == null) {
+            FirebaseApp app = FirebaseApp.initializeApp(context.getApplicationContext(),
+                    FirebaseApp.getInstance().getOptions(), PROVISIONING_APP);
+            provisioningAuth = FirebaseAuth.getInstance(app);
+
+            Resources res = context.getResources();
+            if (res.getBoolean(R.bool.use_firebase_emulator)) {
+                provisioningAuth.useEmulator(res.getString(R.string.firebase_emulator_host),
+                        res.getInteger(R.integer.auth_emulator_port));
+            }
+        }
+        return provisioningAuth;
+    }
+
+    /**
+     * Возвращает настроенный экземпляр FirebaseDatabase.
+     */
+    public static FirebaseDatabase getDatabase(Context context) {
+        if (database == null) {
+            ensureInitialized(context);
+        }
+        return database;
+    }
+
+    /**
+     * Возвращает настроенный экземпляр базы данных по URL
+     * (например, "https://my-app-users-1.firebaseio.com").
+     * Если URL совпадает с основной базой, возвращается основной экземпляр.
+     */
+    public static synchronized FirebaseDatabase getDatabase(Context context, String url) {
+        init(context);
+        FirebaseDatabase firebaseDatabase = databasesByUrl.get(url);
+        if (firebaseDatabase == null) {
+            firebaseDatabase = FirebaseDatabase.getInstance(url);
+            if (firebaseDatabase != database) {
+                configure(context.getResources(), firebaseDatabase);
+            }
+            databasesByUrl.put(url, firebaseDatabase);
+        }
+        return firebaseDatabase;
+    }
+
+    /**
+     * Возвращает корневую ссылку настроенной базы данных.
+     */
+    public static DatabaseReference getRoot(Context context) {
+        if (root == null) {
+            ensureInitialized(context);
+        }
+        return root;
+    }
+
+    /**
+     * Включён ли офлайн-режим (данные и записи сохраняются на диске).
+     */
+    public static boolean isOfflineFirst() {
+        return offlineFirst;
+    }
+
+    /**
+     * Отключено ли соединение с базой вручную (setOnline(false)).
+     */
+    public static boolean isForcedOffline() {
+        return forcedOffline;
+    }
+
+    /**
+     * Включает или отключает соединение с основной базой и всеми базами шардов.
+     * Пока соединение отключено, записи накапливаются в локальной очереди.
+     */
+    public static synchronized void setOnline(Context context, boolean online) {
+        forcedOffline = !online;
+        FirebaseDatabase primary = getDatabase(context);
+        if (online) {
+            primary.goOnline();
+        } else {
+            primary.goOffline();
+        }
+        for (FirebaseDatabase shard : databasesByUrl.values()) {
+            if (shard == primary) {
+                continue;
+            }
+            if (online) {
+                shard.goOnline();
+            } else {
+                shard.goOffline();
+            }
+        }
+    }
+}
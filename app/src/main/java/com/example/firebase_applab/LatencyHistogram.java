@@ -0,0 +1,82 @@
+package com.example.firebase_applab;
+
+/**
+ * LatencyHistogram — гистограмма задержек с логарифмическими интервалами.
+ *
+ * Назначение:
+ * 1. Хранит распределение задержек в фиксированном объёме памяти
+ *    (не хранит каждое измерение).
+ * 2. Оценивает перцентили (p50/p95/p99) с точностью до ширины интервала (~19%).
+ *
+ * Интервалы растут в геометрической прогрессии: 1 мс, 1.19 мс, 1.41 мс ... ~2 мин.
+ */
+public class LatencyHistogram {
+
+    /** Количество интервалов на каждое удвоение задержки */
+    private static final int BUCKETS_PER_DOUBLING = 4;
+
+    /** Общее количество интервалов (покрывает задержки до 2^17 мс ≈ 131 с) */
+    private static final int BUCKET_COUNT = 17 * BUCKETS_PER_DOUBLING + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total;
+    private long maxMs;
+
+    /**
+     * Добавляет измерение.
+     *
+     * @param latencyMs задержка в миллисекундах
+     */
+    public synchronized void record(long latencyMs) {
+        counts[bucketOf(latencyMs)]++;
+        total++;
+        if (latencyMs > maxMs) {
+            maxMs = latencyMs;
+        }
+    }
+
+    /** Количество измерений */
+    public synchronized long getCount() {
+        return total;
+    }
+
+    /** Максимальная задержка, мс */
+    public synchronized long getMaxMs() {
+        return maxMs;
+    }
+
+    /**
+     * Оценка перцентиля — верхняя граница интервала, в который он попал.
+     *
+     * @param percentile значение от 0 до 100
+     * @return задержка в миллисекундах (0, если измерений нет)
+     */
+    public synchronized long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMs);
+            }
+        }
+        return maxMs;
+    }
+
+    /** Номер интервала для задержки */
+    private static int bucketOf(long latencyMs) {
+        if (latencyMs <= 1) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log(latencyMs) / Math.log(2) * BUCKETS_PER_DOUBLING);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /** Верхняя граница интервала, мс */
+    private static long upperBound(int bucket) {
+        return (long) Math.ceil(Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING));
+    }
+}
@@ -2,7 +2,10 @@ package com.example.firebase_applab;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Trace;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -12,7 +15,8 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.google.firebase.auth.FirebaseAuth;
+import com.example.firebase_applab.databinding.ActivityLoginBinding;
+
 
 /**
  * LoginActivity — экран входа пользователя в приложение.
@@ -42,8 +46,8 @@ public class LoginActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     // Firebase
-    /** Объект Firebase Authentication для выполнения входа */
-    private FirebaseAuth mAuth;
+    /** Клиент Firebase Authentication для выполнения входа */
+    private AuthClient authClient;
 
     /**
      * Метод жизненного цикла Activity — вызывается при создании экрана.
@@ -52,17 +56,43 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
+        // Разметка — один плоский LinearLayout; view binding заменяет поиск по id
+        Trace.beginSection("LoginActivity.inflate");
+        ActivityLoginBinding binding = ActivityLoginBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        Trace.endSection();
+        StartupTimer.onFirstFrame(this);
 
         // Инициализация Firebase Authentication
-        mAuth = FirebaseAuth.getInstance();
+        authClient = AuthClient.getInstance(this);
 
         // Привязка элементов интерфейса из XML к переменным
-        etEmail = findViewById(R.id.etLoginEmail);
-        etPassword = findViewById(R.id.etLoginPassword);
-        btnLogin = findViewById(R.id.btnLogin);
-        tvGoToRegister = findViewById(R.id.tvGoToRegister);
-        progressBar = findViewById(R.id.loginProgressBar);
+        etEmail = binding.etLoginEmail;
+        etPassword = binding.etLoginPassword;
+        btnLogin = binding.btnLogin;
+        tvGoToRegister = binding.tvGoToRegister;
+        progressBar = binding.loginProgressBar;
+
+        // Прогрев соединений, пока пользователь вводит email
+        etEmail.setOnFocusChangeListener((v, hasFocus) -> {
+            if (hasFocus) {
+                ConnectionWarmup.touch(this);
+            }
+        });
+        etEmail.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                ConnectionWarmup.touch(LoginActivity.this);
+            }
+        });
 
         // Обработчик кнопки входа
         btnLogin.setOnClickListener(v -> loginUser());
@@ -96,11 +126,14 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
-        // Показываем индикатор загрузки
+        // Показываем индикатор загрузки; повторное нажатие до ответа не создаёт второй переход
         progressBar.setVisibility(View.VISIBLE);
+        btnLogin.setEnabled(false);
+        ConnectionWarmup.markTap();
 
         // Выполняем вход через Firebase Authentication
-        mAuth.signInWithEmailAndPassword(email, password)
+        // Вход выполняется через AuthClient: повторы при сбоях сети и защита от двойного нажатия
+        authClient.signIn(email, password)
                 .addOnCompleteListener(this, task -> {
                     // Скрываем индикатор после выполнения запроса
                     progressBar.setVisibility(View.GONE);
@@ -116,6 +149,8 @@ public class LoginActivity extends AppCompatActivity {
                         finish(); // Закрываем LoginActivity
                     } else {
                         // Ошибка входа — показываем сообщение пользователю
+                        btnLogin.setEnabled(true);
+                        ConnectionWarmup.markTapFailed();
                         Toast.makeText(LoginActivity.this, "Ошибка входа: " +
                                 task.getException().getMessage(), Toast.LENGTH_LONG).show();
                     }
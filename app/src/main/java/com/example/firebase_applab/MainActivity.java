@@ -2,20 +2,20 @@ package com.example.firebase_applab;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Trace;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.firebase_applab.databinding.ActivityMainBinding;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+
+import java.util.Objects;
 
 /**
  * MainActivity — главный экран приложения.
@@ -26,6 +26,11 @@ import com.google.firebase.database.ValueEventListener;
  * 3. Отображает имя и email пользователя.
  * 4. Предоставляет возможность выйти из системы.
  * 5. Если пользователь не авторизован — перенаправляет на экран входа (LoginActivity).
+ *    Обычно эту проверку заранее выполняет RouterActivity.
+ * 6. Включает отслеживание статуса «в сети» (PresenceTracker).
+ *
+ * Профиль загружает UserProfileViewModel: сначала из локального кэша (UserProfileCache),
+ * затем из базы; экран перерисовывается только если данные изменились.
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -33,18 +38,27 @@ public class MainActivity extends AppCompatActivity {
     /** Кнопка для выхода из аккаунта */
     private Button btnLogout;
 
+    /** Кнопка перехода к редактированию профиля */
+    private Button btnEditProfile;
+
+    /** Кнопка перехода к справочнику пользователей */
+    private Button btnUserDirectory;
+
     /** Текстовые поля для отображения имени и email пользователя */
     private TextView tvUserName, tvUserEmail;
 
     /** Объект для работы с Firebase Authentication */
     private FirebaseAuth mAuth;
 
-    /** Ссылка на Realtime Database */
-    private DatabaseReference mDatabase;
-
     /** Текущий авторизованный пользователь */
     private FirebaseUser currentUser;
 
+    /** Локальный кэш профилей */
+    private UserProfileCache profileCache;
+
+    /** Профиль, который сейчас отображается на экране (null — ещё ничего не показано) */
+    private User displayedUser;
+
     /**
      * Метод жизненного цикла onCreate() — вызывается при создании Activity.
      * Здесь происходит:
@@ -56,33 +70,60 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
 
         // Инициализация Firebase Authentication
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseSetup.getAuth(this);
 
         // Получаем текущего пользователя (если он авторизован)
         currentUser = mAuth.getCurrentUser();
 
-        // Если пользователь не вошёл в систему — переходим на экран входа
+        // Если пользователь не вошёл в систему — переходим на экран входа.
+        // Проверка выполняется до setContentView(), чтобы не создавать разметку впустую
         if (currentUser == null) {
             goToLogin();
             return;
         }
 
-        // Инициализация базы данных
-        mDatabase = FirebaseDatabase.getInstance().getReference();
+        // Разметка — один плоский LinearLayout; view binding заменяет поиск по id
+        Trace.beginSection("MainActivity.inflate");
+        ActivityMainBinding binding = ActivityMainBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        Trace.endSection();
+        StartupTimer.onFirstFrame(this);
+        ConnectionWarmup.reportMainShown();
+
+        // Локальный кэш профилей
+        profileCache = UserProfileCache.getInstance(this);
 
         // Привязка элементов интерфейса к переменным
-        tvUserName = findViewById(R.id.tvUserName);
-        tvUserEmail = findViewById(R.id.tvUserEmail);
-        btnLogout = findViewById(R.id.btnLogout);
+        tvUserName = binding.tvUserName;
+        tvUserEmail = binding.tvUserEmail;
+        btnLogout = binding.btnLogout;
+        btnUserDirectory = binding.btnUserDirectory;
+        btnEditProfile = binding.btnEditProfile;
+
+        // Отправляем изменения профиля, оставшиеся в очереди с прошлого запуска
+        ProfileWriteQueue.getInstance(this);
+
+        // Статус «в сети», пока приложение на переднем плане
+        PresenceTracker.getInstance(this).start(currentUser.getUid());
 
         // Загружаем информацию о пользователе из базы данных
         loadUserInfo();
 
+        // Переход к редактированию профиля
+        btnEditProfile.setOnClickListener(v ->
+                startActivity(new Intent(MainActivity.this, ProfileEditActivity.class)));
+
+        // Переход к справочнику пользователей
+        btnUserDirectory.setOnClickListener(v ->
+                startActivity(new Intent(MainActivity.this, UserDirectoryActivity.class)));
+
         // Обработчик нажатия на кнопку "Выход"
         btnLogout.setOnClickListener(v -> {
+            profileCache.remove(currentUser.getUid()); // Удаляем профиль из локального кэша
+            ProfileWriteQueue.getInstance(this).clear(); // Неотправленные правки профиля не переносим
+            PresenceTracker.getInstance(this).stop();  // Записываем статус "не в сети"
             mAuth.signOut();  // Выходим из аккаунта Firebase
             goToLogin();      // Возвращаемся на экран авторизации
         });
@@ -98,35 +139,50 @@ public class MainActivity extends AppCompatActivity {
      *   └── UID12345
      *         ├── name: "Иван"
      *         └── email: "ivan@example.com"
+     *
+     * Загрузку выполняет UserProfileViewModel через живую подписку: изменения профиля,
+     * сделанные в другом месте, сразу появляются на экране. Подписка активна между
+     * onStart и onStop (наблюдатель LiveData привязан к жизненному циклу Activity),
+     * а при повороте экрана профиль не читается из базы повторно.
      */
     private void loadUserInfo() {
-        String uid = currentUser.getUid(); // Получаем UID текущего пользователя
-
-        // Обращаемся к ветке "Users/{uid}" в Realtime Database
-        mDatabase.child("Users").child(uid).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                // Конвертируем данные в объект User (должен быть отдельный класс User.java)
-                User user = dataSnapshot.getValue(User.class);
-
-                if (user != null) {
-                    // Если данные успешно получены — отображаем
-                    tvUserName.setText("Имя: " + user.getName());
-                    tvUserEmail.setText("Email: " + user.getEmail());
-                } else {
-                    // Если данных нет — показываем сообщение и выводим fallback-информацию
-                    Toast.makeText(MainActivity.this, "Не удалось загрузить данные пользователя.", Toast.LENGTH_SHORT).show();
-                    tvUserEmail.setText(currentUser.getEmail());
-                    tvUserName.setText("Имя не найдено");
-                }
+        UserProfileViewModel viewModel = new ViewModelProvider(this).get(UserProfileViewModel.class);
+
+        // Профиль из кэша или из базы; ViewModel публикует только изменившиеся данные
+        viewModel.getProfile().observe(this, this::showUser);
+
+        // Ошибки загрузки
+        viewModel.getError().observe(this, message -> {
+            if (message == null) {
+                return;
             }
+            Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            viewModel.onErrorShown();
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                // Обработка ошибок при чтении из базы данных
-                Toast.makeText(MainActivity.this, "Ошибка загрузки: " + databaseError.getMessage(), Toast.LENGTH_LONG).show();
+            // Если данных нет — выводим fallback-информацию
+            if (displayedUser == null) {
+                tvUserEmail.setText(currentUser.getEmail());
+                tvUserName.setText("Имя не найдено");
             }
         });
+
+        viewModel.load(currentUser.getUid()); // UID текущего пользователя
+    }
+
+    /**
+     * Отображает данные пользователя на экране.
+     *
+     * @param user профиль из кэша или из базы данных
+     */
+    private void showUser(User user) {
+        // Обновляем только изменившиеся поля, чтобы не запускать лишние проходы разметки
+        if (displayedUser == null || !Objects.equals(displayedUser.getName(), user.getName())) {
+            tvUserName.setText("Имя: " + user.getName());
+        }
+        if (displayedUser == null || !Objects.equals(displayedUser.getEmail(), user.getEmail())) {
+            tvUserEmail.setText("Email: " + user.getEmail());
+        }
+        displayedUser = user;
     }
 
     /**
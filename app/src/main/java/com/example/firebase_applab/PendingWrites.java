@@ -0,0 +1,73 @@
+package com.example.firebase_applab;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PendingWrites — счётчик записей в базу, ещё не подтверждённых сервером.
+ *
+ * Назначение:
+ * 1. В офлайн-режиме запись сразу применяется локально, а на сервер уходит
+ *    после восстановления соединения. Счётчик показывает глубину этой очереди.
+ * 2. Каждая запись в базу оборачивается методом track(): записи через
+ *    UserShards.updateChildren() (регистрация, массовый импорт), очередь правок профиля
+ *    (ProfileWriteQueue), статус присутствия (PresenceTracker), обновление данных
+ *    (EmailIndexBackfill, ProfileSchemaMigrator, ProfileLiveData) и перенос профилей
+ *    (ShardRebalancer). Регистрация onDisconnect() записью не считается.
+ */
+public final class PendingWrites {
+
+    private static final String TAG = "PendingWrites";
+
+    /** Количество записей, ожидающих подтверждения сервера */
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    private PendingWrites() {
+        // Утилитный класс
+    }
+
+    /**
+     * Учитывает запись до получения ответа сервера.
+     *
+     * @param write задача записи (setValue / updateChildren)
+     * @return та же задача
+     */
+    public static <T> Task<T> track(Task<T> write) {
+        int depth = pending.incrementAndGet();
+        Log.d(TAG, "Записей в очереди: " + depth);
+        write.addOnCompleteListener(task -> {
+            int left = pending.decrementAndGet();
+            Log.d(TAG, "Запись " + (task.isSuccessful() ? "подтверждена" : "отклонена")
+                    + ", осталось в очереди: " + left);
+        });
+        return write;
+    }
+
+    /**
+     * Учитывает запись с CompletionListener до получения ответа сервера.
+     *
+     * @param listener получатель результата записи
+     * @return слушатель, который уменьшает счётчик и передаёт результат listener
+     */
+    public static DatabaseReference.CompletionListener track(DatabaseReference.CompletionListener listener) {
+        int depth = pending.incrementAndGet();
+        Log.d(TAG, "Записей в очереди: " + depth);
+        return (error, ref) -> {
+            int left = pending.decrementAndGet();
+            Log.d(TAG, "Запись " + (error == null ? "подтверждена" : "отклонена")
+                    + ", осталось в очереди: " + left);
+            listener.onComplete(error, ref);
+        };
+    }
+
+    /**
+     * Текущая глубина очереди неподтверждённых записей.
+     */
+    public static int getCount() {
+        return pending.get();
+    }
+}
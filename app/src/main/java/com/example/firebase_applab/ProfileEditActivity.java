@@ -0,0 +1,95 @@
+package com.example.firebase_applab;
+
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.Button;
+import android.widget.EditText;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * ProfileEditActivity — экран редактирования профиля.
+ *
+ * Назначение:
+ * 1. Показывает текущее имя пользователя и позволяет его изменить.
+ * 2. Изменения сохраняются автоматически при вводе: каждое изменение ставится
+ *    в ProfileWriteQueue, которая схлопывает их и отправляет в базу пачкой,
+ *    а не отдельной записью на каждое нажатие клавиши.
+ *
+ * Email не редактируется: он совпадает с адресом входа в Firebase Authentication.
+ */
+public class ProfileEditActivity extends AppCompatActivity {
+
+    /** Поле для ввода имени */
+    private EditText etName;
+
+    /** Кнопка завершения редактирования */
+    private Button btnDone;
+
+    /** Очередь отложенной записи профиля */
+    private ProfileWriteQueue writeQueue;
+
+    /** Текущий авторизованный пользователь */
+    private FirebaseUser currentUser;
+
+    /** Поле имени уже заполнено данными профиля */
+    private boolean nameLoaded;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        currentUser = FirebaseSetup.getAuth(this).getCurrentUser();
+        if (currentUser == null) {
+            finish();
+            return;
+        }
+
+        setContentView(R.layout.activity_profile_edit);
+        writeQueue = ProfileWriteQueue.getInstance(this);
+
+        // Привязка элементов интерфейса
+        etName = findViewById(R.id.etEditName);
+        btnDone = findViewById(R.id.btnEditDone);
+
+        // Текущее имя берём из общей подписки на профиль
+        UserProfileViewModel viewModel = new ViewModelProvider(this).get(UserProfileViewModel.class);
+        viewModel.getProfile().observe(this, user -> {
+            // Заполняем поле только один раз, чтобы не перебивать ввод пользователя
+            if (!nameLoaded && user.getName() != null) {
+                nameLoaded = true;
+                etName.setText(user.getName());
+                etName.setSelection(etName.getText().length());
+                etName.addTextChangedListener(nameWatcher);
+            }
+        });
+        viewModel.load(currentUser.getUid());
+
+        btnDone.setOnClickListener(v -> finish());
+    }
+
+    /** Ставит новое имя в очередь записи при каждом изменении поля */
+    private final TextWatcher nameWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            String name = s.toString().trim();
+            if (name.isEmpty()) {
+                etName.setError("Имя не может быть пустым");
+                return;
+            }
+            writeQueue.enqueue(currentUser.getUid(), UserMapper.KEY_NAME, name);
+        }
+    };
+}
@@ -0,0 +1,218 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ProfileLiveData — живая подписка на профиль "Users/{uid}".
+ *
+ * Назначение:
+ * 1. Подписывается на узел, пока есть хотя бы один активный наблюдатель
+ *    (экран между onStart и onStop), и отписывается, когда их не остаётся.
+ *    Отписка откладывается на STOP_TIMEOUT_MS, чтобы поворот экрана
+ *    не приводил к повторной загрузке профиля.
+ * 2. Один экземпляр на uid (forUid) — все экраны с одним профилем
+ *    используют один слушатель базы. После отписки без наблюдателей экземпляр
+ *    забывается, а в офлайн-режиме узел перестаёт синхронизироваться (keepSynced(false)),
+ *    поэтому просмотренные профили не копятся в памяти и не синхронизируются вечно.
+ * 3. Серия изменений объединяется: наблюдатели получают не больше одного
+ *    обновления за кадр (Choreographer), а неизменившийся профиль не публикуется.
+ * 4. Запись старой схемы переводится в текущую при первом чтении (UserMapper.migrationUpdates).
+ * 5. Если профиля ещё нет в шарде пользователя (шарды добавлены, а ShardRebalancer
+ *    не запускался), профиль один раз читается из прежнего места хранения
+ *    (UserShards.previousUserRef). Подписка остаётся на новом шарде и получит профиль,
+ *    когда его перенесут.
+ */
+public class ProfileLiveData extends LiveData<User> {
+
+    /** Задержка отписки после ухода последнего наблюдателя */
+    private static final long STOP_TIMEOUT_MS = 5_000;
+
+    /** Подписки по uid, общие для всех экранов */
+    private static final Map<String, ProfileLiveData> instances = new HashMap<>();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** Идентификатор пользователя (ключ в instances) */
+    private final String uid;
+
+    /** Узел "Users/{uid}" */
+    private final DatabaseReference ref;
+
+    /** Узел профиля в прежнем месте хранения (null — профиль не переезжал) */
+    private final DatabaseReference previousRef;
+
+    /** Ошибки загрузки (null — ошибки нет) */
+    private final MutableLiveData<String> error = new MutableLiveData<>();
+
+    /** Слушатель подключён к базе */
+    private boolean attached;
+
+    /** Замер времени до первого ответа после подключения */
+    private FirebaseMetrics.Timer firstValueTimer;
+
+    /** Последний полученный профиль, ещё не опубликованный */
+    private User pending;
+
+    /** Публикация уже запланирована на следующий кадр */
+    private boolean frameScheduled;
+
+    /** Публикация профиля в начале кадра */
+    private final Choreographer.FrameCallback publishOnFrame = frameTimeNanos -> {
+        frameScheduled = false;
+        if (pending != null && !pending.equals(getValue())) {
+            setValue(pending);
+        }
+        pending = null;
+    };
+
+    /** Отложенная отписка */
+    private final Runnable detach = this::detach;
+
+    private final ValueEventListener listener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            if (firstValueTimer != null) {
+                firstValueTimer.success();
+                firstValueTimer = null;
+            }
+
+            // Профиль ещё не перенесён в шард — читаем из прежнего места хранения
+            if (!snapshot.exists() && previousRef != null) {
+                FirebaseMetrics.track("db.shardFallback", previousRef.get()).addOnCompleteListener(task -> {
+                    User previous = task.isSuccessful() ? UserMapper.fromSnapshot(task.getResult()) : null;
+                    if (previous == null) {
+                        error.setValue("Не удалось загрузить данные пользователя.");
+                    } else if (attached) {
+                        publish(previous);
+                    }
+                });
+                return;
+            }
+
+            // Конвертируем данные в объект User без рефлексивного маппера Firebase
+            User user = UserMapper.fromSnapshot(snapshot);
+            if (user == null) {
+                error.setValue("Не удалось загрузить данные пользователя.");
+                return;
+            }
+
+            // Запись старой схемы переводим в текущую; слушатель получит уже запись v2
+            if (UserMapper.needsMigration(user)) {
+                PendingWrites.track(FirebaseMetrics.track("db.migrateProfile",
+                        ref.updateChildren(UserMapper.migrationUpdates(user))));
+            }
+
+            publish(user);
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError databaseError) {
+            if (firstValueTimer != null) {
+                firstValueTimer.failure(FirebaseMetrics.categoryOf(databaseError));
+                firstValueTimer = null;
+            }
+            attached = false;
+            if (FirebaseSetup.isOfflineFirst()) {
+                ref.keepSynced(false);
+            }
+            error.setValue("Ошибка загрузки: " + databaseError.getMessage());
+        }
+    };
+
+    private ProfileLiveData(String uid, DatabaseReference ref, DatabaseReference previousRef) {
+        this.uid = uid;
+        this.ref = ref;
+        this.previousRef = previousRef;
+    }
+
+    /**
+     * Возвращает общую подписку на профиль пользователя.
+     * Вызывается из главного потока.
+     *
+     * @param context любой Context приложения
+     * @param uid     идентификатор пользователя
+     */
+    public static ProfileLiveData forUid(Context context, String uid) {
+        ProfileLiveData liveData = instances.get(uid);
+        if (liveData == null) {
+            // Профиль хранится в шарде пользователя (см. UserShards)
+            UserShards shards = UserShards.getInstance(context);
+            liveData = new ProfileLiveData(uid, shards.userRef(uid), shards.previousUserRef(uid));
+            instances.put(uid, liveData);
+        }
+        return liveData;
+    }
+
+    /** Ошибки загрузки профиля */
+    public LiveData<String> getError() {
+        return error;
+    }
+
+    @Override
+    protected void onActive() {
+        mainHandler.removeCallbacks(detach);
+        // Экземпляр мог быть забыт при отписке, а наблюдатель вернулся к нему же
+        if (!instances.containsKey(uid)) {
+            instances.put(uid, this);
+        }
+        if (!attached) {
+            attached = true;
+            // В офлайн-режиме держим узел синхронизированным,
+            // чтобы профиль был доступен из дискового кэша без сети
+            if (FirebaseSetup.isOfflineFirst()) {
+                ref.keepSynced(true);
+            }
+            firstValueTimer = FirebaseMetrics.start("db.loadProfile");
+            ref.addValueEventListener(listener);
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        mainHandler.postDelayed(detach, STOP_TIMEOUT_MS);
+    }
+
+    /**
+     * Публикует профиль в начале следующего кадра; серия изменений за кадр схлопывается.
+     */
+    private void publish(User user) {
+        pending = user;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(publishOnFrame);
+        }
+    }
+
+    private void detach() {
+        if (attached) {
+            attached = false;
+            ref.removeEventListener(listener);
+            if (FirebaseSetup.isOfflineFirst()) {
+                ref.keepSynced(false);
+            }
+        }
+        if (!hasObservers() && instances.get(uid) == this) {
+            instances.remove(uid);
+        }
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(publishOnFrame);
+            frameScheduled = false;
+        }
+        pending = null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.firebase_applab;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ProfileSchemaMigrator — фоновый перевод профилей "Users" в текущую версию схемы.
+ *
+ * Назначение:
+ * 1. Читает узел "Users" порциями по BATCH_SIZE записей
+ *    (orderByKey().startAfter(lastKey).limitToFirst(n)).
+ * 2. Записи старой схемы (v1) в каждой порции обновляет одним multi-path updateChildren()
+ *    (см. UserMapper.migrationUpdates).
+ * 3. Повторный запуск безопасен: записи v2 пропускаются.
+ *
+ * Профили, которые открываются в приложении, переводятся в v2 и без этого —
+ * при первом чтении (UserProfileViewModel).
+ * При нескольких шардах профилей запускается для корня каждого шарда (UserShards.getRoots()).
+ */
+public class ProfileSchemaMigrator {
+
+    private static final String TAG = "ProfileSchemaMigrator";
+
+    /** Количество профилей, читаемых и обновляемых за один шаг */
+    private static final int BATCH_SIZE = 500;
+
+    /** Корень базы данных */
+    private final DatabaseReference root;
+
+    /** Количество переведённых профилей */
+    private int migrated;
+
+    public ProfileSchemaMigrator(DatabaseReference root) {
+        this.root = root;
+    }
+
+    /**
+     * Запускает миграцию.
+     *
+     * @return задача с количеством переведённых профилей
+     */
+    public Task<Integer> run() {
+        migrated = 0;
+        return nextBatch(null);
+    }
+
+    /**
+     * Читает и переводит следующую порцию профилей после ключа lastKey.
+     */
+    private Task<Integer> nextBatch(String lastKey) {
+        Query query = root.child("Users").orderByKey();
+        if (lastKey != null) {
+            query = query.startAfter(lastKey);
+        }
+
+        return query.limitToFirst(BATCH_SIZE).get().continueWithTask(task -> {
+            DataSnapshot batch = task.getResult();
+            Map<String, Object> updates = new HashMap<>();
+            String last = null;
+            int count = 0;
+
+            for (DataSnapshot child : batch.getChildren()) {
+                last = child.getKey();
+                User user = UserMapper.fromSnapshot(child);
+                if (user == null || !UserMapper.needsMigration(user)) {
+                    continue;
+                }
+                for (Map.Entry<String, Object> field : UserMapper.migrationUpdates(user).entrySet()) {
+                    updates.put("Users/" + last + "/" + field.getKey(), field.getValue());
+                }
+                count++;
+            }
+
+            // Порция пустая — все профили обработаны
+            if (last == null) {
+                Log.i(TAG, "Миграция завершена, переведено: " + migrated);
+                return Tasks.forResult(migrated);
+            }
+
+            String next = last;
+            int batchCount = count;
+            boolean lastBatch = batch.getChildrenCount() < BATCH_SIZE;
+            Task<Void> write = updates.isEmpty() ? Tasks.forResult(null) : PendingWrites.track(root.updateChildren(updates));
+            return write.continueWithTask(done -> {
+                if (!done.isSuccessful()) {
+                    return Tasks.forException(done.getException());
+                }
+                migrated += batchCount;
+                Log.d(TAG, "Переведено: " + migrated);
+                return lastBatch ? Tasks.forResult(migrated) : nextBatch(next);
+            });
+        });
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ProfileWriteQueue — отложенная запись изменений профиля (write-behind).
+ *
+ * Назначение:
+ * 1. Изменения полей "Users/{uid}/{field}" сначала сохраняются в локальной очереди
+ *    (SharedPreferences), поэтому переживают завершение процесса.
+ * 2. Повторные изменения одного поля схлопываются: в очереди хранится только
+ *    последнее значение.
+ * 3. Очередь отправляется одним updateChildren() на каждого пользователя в шард его профиля
+ *    (UserShards) через FLUSH_DELAY_MS после последнего изменения, а также сразу при восстановлении
+ *    потерянного соединения с основной базой.
+ * 4. При временной ошибке отправка повторяется с экспоненциальной задержкой.
+ *    Поля, запись которых база отклонила (нет прав, некорректные данные), удаляются
+ *    из очереди (profileQueue.dropped). При выходе из аккаунта очередь очищается (clear()).
+ * 5. Глубина очереди и время отправки записываются в FirebaseMetrics
+ *    (profileQueue.depth, profileQueue.flush).
+ *
+ * Все методы вызываются из главного потока.
+ */
+public class ProfileWriteQueue {
+
+    private static final String TAG = "ProfileWriteQueue";
+
+    /** Файл SharedPreferences с очередью; ключ — "uid/field", значение — новое значение поля */
+    private static final String PREFS_NAME = "profile_write_queue";
+
+    /** Задержка отправки после последнего изменения */
+    private static final long FLUSH_DELAY_MS = 2_000;
+
+    /** Максимальная задержка повтора после ошибок */
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60_000;
+
+    private static ProfileWriteQueue instance;
+
+    private final SharedPreferences prefs;
+    private final UserShards shards;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** Отправка сейчас выполняется */
+    private boolean flushing;
+
+    /** Количество неудачных отправок подряд */
+    private int failures;
+
+    /** Подписка на состояние соединения (активна, пока очередь не пуста) */
+    private final DatabaseReference connectedRef;
+    private boolean watchingConnection;
+
+    /** Соединение было потеряно с момента подписки */
+    private boolean disconnected;
+
+    private final Runnable flushTask = this::flush;
+
+    /**
+     * Отправка при восстановлении соединения. Первое событие подписки
+     * («соединение есть») переходом не считается и задержку FLUSH_DELAY_MS не отменяет.
+     */
+    private final ValueEventListener connectionListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            boolean connected = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+            if (connected && disconnected) {
+                failures = 0;
+                scheduleFlush(0);
+            }
+            disconnected = !connected;
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            watchingConnection = false;
+        }
+    };
+
+    private ProfileWriteQueue(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        shards = UserShards.getInstance(context);
+        connectedRef = FirebaseSetup.getDatabase(context).getReference(".info/connected");
+    }
+
+    /**
+     * Возвращает очередь. При первом вызове отправляет изменения,
+     * оставшиеся от прошлого запуска процесса.
+     */
+    public static ProfileWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileWriteQueue(context.getApplicationContext());
+            if (instance.getDepth() > 0) {
+                instance.watchConnection();
+                instance.scheduleFlush(0);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ставит изменение поля профиля в очередь. Прежнее значение того же поля заменяется.
+     *
+     * @param uid   идентификатор пользователя
+     * @param field имя поля, например UserMapper.KEY_NAME
+     * @param value новое значение
+     */
+    public void enqueue(String uid, String field, String value) {
+        prefs.edit().putString(uid + "/" + field, value).apply();
+        FirebaseMetrics.recordValue("profileQueue.depth", getDepth());
+        watchConnection();
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    /** Количество полей, ожидающих отправки */
+    public int getDepth() {
+        return prefs.getAll().size();
+    }
+
+    private void scheduleFlush(long delayMs) {
+        mainHandler.removeCallbacks(flushTask);
+        mainHandler.postDelayed(flushTask, delayMs);
+    }
+
+    /**
+     * Отменяет все неотправленные изменения (выход из аккаунта):
+     * следующий пользователь не должен отправлять чужие правки.
+     */
+    public void clear() {
+        mainHandler.removeCallbacks(flushTask);
+        prefs.edit().clear().apply();
+        failures = 0;
+        unwatchConnection();
+        FirebaseMetrics.recordValue("profileQueue.depth", 0);
+    }
+
+    /**
+     * Отправляет очередь: одним updateChildren() на каждого пользователя в очереди,
+     * чтобы отказ в записи одного профиля не задерживал остальные.
+     */
+    private void flush() {
+        if (flushing) {
+            return;
+        }
+        Map<String, ?> snapshot = prefs.getAll();
+        if (snapshot.isEmpty()) {
+            unwatchConnection();
+            return;
+        }
+
+        Map<String, Map<String, Object>> updatesByUid = new HashMap<>();
+        for (Map.Entry<String, ?> entry : snapshot.entrySet()) {
+            int slash = entry.getKey().indexOf('/');
+            String uid = entry.getKey().substring(0, slash);
+            Map<String, Object> updates = updatesByUid.get(uid);
+            if (updates == null) {
+                updates = new HashMap<>();
+                // Время изменения профиля — для выборки изменившихся профилей (UserSearchSync)
+                updates.put(UserMapper.KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+                updatesByUid.put(uid, updates);
+            }
+            updates.put(entry.getKey().substring(slash + 1), entry.getValue());
+        }
+
+        flushing = true;
+        FirebaseMetrics.Timer timer = FirebaseMetrics.start("profileQueue.flush");
+        int[] remaining = {updatesByUid.size()};
+        DatabaseError[] retryError = {null};
+        for (Map.Entry<String, Map<String, Object>> user : updatesByUid.entrySet()) {
+            String uid = user.getKey();
+            shards.userRef(uid).updateChildren(user.getValue(), PendingWrites.track((error, ref) -> {
+                if (error == null) {
+                    removeSent(snapshot, uid);
+                } else if (isPermanent(error)) {
+                    // Повтор не поможет — иначе очередь застрянет на этих полях навсегда
+                    Log.e(TAG, "Изменения профиля " + uid + " отклонены базой и удалены из очереди: "
+                            + error.getMessage());
+                    FirebaseMetrics.increment("profileQueue.dropped");
+                    removeSent(snapshot, uid);
+                } else {
+                    retryError[0] = error;
+                }
+                if (--remaining[0] == 0) {
+                    onFlushed(timer, retryError[0]);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Завершение отправки: следующая отправка или повтор с экспоненциальной задержкой.
+     *
+     * @param error временная ошибка записи одного из профилей (null — все записаны или отброшены)
+     */
+    private void onFlushed(FirebaseMetrics.Timer timer, DatabaseError error) {
+        flushing = false;
+        if (error == null) {
+            timer.success();
+            failures = 0;
+            Log.d(TAG, "Очередь отправлена, осталось полей: " + getDepth());
+            if (getDepth() > 0) {
+                scheduleFlush(FLUSH_DELAY_MS);
+            } else {
+                unwatchConnection();
+            }
+        } else {
+            timer.failure(FirebaseMetrics.categoryOf(error));
+            failures++;
+            long delay = Math.min(FLUSH_DELAY_MS << Math.min(failures, 16), MAX_RETRY_DELAY_MS);
+            Log.w(TAG, "Ошибка отправки, повтор через " + delay + " мс", error.toException());
+            scheduleFlush(delay);
+        }
+    }
+
+    /**
+     * Ошибка, которую повтор не исправит: правила базы запрещают запись
+     * (например, поля остались от другого пользователя) или данные некорректны.
+     */
+    private static boolean isPermanent(DatabaseError error) {
+        switch (error.getCode()) {
+            case DatabaseError.PERMISSION_DENIED:
+            case DatabaseError.INVALID_TOKEN:
+            case DatabaseError.USER_CODE_EXCEPTION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Удаляет из очереди отправленные поля пользователя. Поля, изменённые во время отправки, остаются.
+     */
+    private void removeSent(Map<String, ?> sent, String uid) {
+        String prefix = uid + "/";
+        Map<String, ?> current = prefs.getAll();
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, ?> entry : sent.entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue().equals(current.get(entry.getKey()))) {
+                editor.remove(entry.getKey());
+            }
+        }
+        editor.apply();
+        FirebaseMetrics.recordValue("profileQueue.depth", getDepth());
+    }
+
+    private void watchConnection() {
+        if (!watchingConnection) {
+            watchingConnection = true;
+            disconnected = false;
+            connectedRef.addValueEventListener(connectionListener);
+        }
+    }
+
+    private void unwatchConnection() {
+        if (watchingConnection) {
+            watchingConnection = false;
+            connectedRef.removeEventListener(connectionListener);
+        }
+    }
+}
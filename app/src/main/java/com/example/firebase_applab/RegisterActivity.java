@@ -1,8 +1,11 @@
 package com.example.firebase_applab;
 
 import android.content.Intent;
+import android.content.res.Resources;
 import android.os.Bundle;
-import android.text.TextUtils;
+import android.os.Trace;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -11,14 +14,15 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.firebase_applab.databinding.ActivityRegisterBinding;
+
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
 
+
 /**
  * RegisterActivity — экран регистрации нового пользователя.
  *
@@ -27,9 +31,16 @@ import java.util.Locale;
  * 2. После успешной регистрации — сохраняет данные пользователя (имя, email, дата регистрации)
  *    в Firebase Realtime Database.
  * 3. После регистрации перенаправляет пользователя на экран входа (LoginActivity).
+ * 4. Проверяет данные по мере ввода: синтаксис email, политику паролей и занятость
+ *    email (EmailAvailabilityChecker). Регистрация, которая заведомо будет отклонена,
+ *    в Firebase Authentication не отправляется; такие случаи считаются
+ *    в FirebaseMetrics ("register.blocked.*", "auth.roundTripsAvoided").
  */
 public class RegisterActivity extends AppCompatActivity {
 
+    /** Сообщение о занятом email */
+    private static final String EMAIL_TAKEN = "Этот email уже зарегистрирован";
+
     // Элементы интерфейса
     /** Поле для ввода имени пользователя */
     private EditText etName;
@@ -50,8 +61,15 @@ public class RegisterActivity extends AppCompatActivity {
     /** Объект Firebase Authentication для регистрации пользователя */
     private FirebaseAuth mAuth;
 
-    /** Ссылка на Realtime Database для хранения данных пользователя */
-    private DatabaseReference mDatabase;
+    /** Базы данных (шарды), в которых хранятся профили пользователей */
+    private UserShards userShards;
+
+    // Проверка данных
+    /** Требования к паролю (res/values/config.xml) */
+    private RegistrationValidator.PasswordPolicy passwordPolicy;
+
+    /** Проверка занятости email по индексу UsersByEmail */
+    private EmailAvailabilityChecker emailChecker;
 
     /**
      * Метод жизненного цикла Activity — вызывается при создании экрана.
@@ -60,28 +78,107 @@ public class RegisterActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_register);
+        // Разметка — один плоский LinearLayout; view binding заменяет поиск по id
+        Trace.beginSection("RegisterActivity.inflate");
+        ActivityRegisterBinding binding = ActivityRegisterBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        Trace.endSection();
 
         // Инициализация Firebase
-        mAuth = FirebaseAuth.getInstance();
-        mDatabase = FirebaseDatabase.getInstance().getReference();
+        mAuth = FirebaseSetup.getAuth(this);
+        userShards = UserShards.getInstance(this);
+
+        // Проверка данных по мере ввода
+        Resources res = getResources();
+        passwordPolicy = new RegistrationValidator.PasswordPolicy(res.getInteger(R.integer.password_min_length),
+                res.getBoolean(R.bool.password_require_letter), res.getBoolean(R.bool.password_require_digit));
+        emailChecker = new EmailAvailabilityChecker(userShards.getPrimaryRoot());
 
         // Привязка элементов интерфейса
-        etName = findViewById(R.id.etRegisterName);
-        etEmail = findViewById(R.id.etRegisterEmail);
-        etPassword = findViewById(R.id.etRegisterPassword);
-        btnRegister = findViewById(R.id.btnRegister);
-        progressBar = findViewById(R.id.registerProgressBar);
+        etName = binding.etRegisterName;
+        etEmail = binding.etRegisterEmail;
+        etPassword = binding.etRegisterPassword;
+        btnRegister = binding.btnRegister;
+        progressBar = binding.registerProgressBar;
+
+        // Прогрев соединений, пока пользователь вводит email;
+        // синтаксис email показывается, когда поле теряет фокус
+        etEmail.setOnFocusChangeListener((v, hasFocus) -> {
+            if (hasFocus) {
+                ConnectionWarmup.touch(this);
+                return;
+            }
+            String email = etEmail.getText().toString().trim();
+            RegistrationValidator.Error error = RegistrationValidator.validateEmail(email);
+            if (error != null && !email.isEmpty()) {
+                etEmail.setError(error.getMessage());
+            }
+        });
+        etEmail.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                ConnectionWarmup.touch(RegisterActivity.this);
+                onEmailChanged(s.toString().trim());
+            }
+        });
+
+        // Политика паролей — по мере ввода
+        etPassword.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                String password = s.toString().trim();
+                RegistrationValidator.Error error = RegistrationValidator.validatePassword(password, passwordPolicy);
+                etPassword.setError(error == null || password.isEmpty() ? null : error.getMessage());
+            }
+        });
 
         // Обработчик кнопки "Зарегистрироваться"
         btnRegister.setOnClickListener(v -> registerUser());
     }
 
+    @Override
+    protected void onDestroy() {
+        emailChecker.cancel();
+        super.onDestroy();
+    }
+
+    /**
+     * Запускает отложенную проверку занятости email, если его синтаксис корректен.
+     */
+    private void onEmailChanged(String email) {
+        if (RegistrationValidator.validateEmail(email) != null) {
+            emailChecker.cancel();
+            return;
+        }
+        emailChecker.checkDebounced(email, (checked, taken) -> {
+            if (taken && checked.equals(etEmail.getText().toString().trim())) {
+                etEmail.setError(EMAIL_TAKEN);
+            }
+        });
+    }
+
     /**
      * Метод выполняет регистрацию нового пользователя.
      * 1. Проверяет корректность введённых данных.
-     * 2. Создаёт пользователя в Firebase Authentication.
-     * 3. Сохраняет его данные в Realtime Database.
+     * 2. Проверяет, не зарегистрирован ли уже email (обычно ответ уже в кэше).
+     * 3. Создаёт пользователя в Firebase Authentication.
+     * 4. Сохраняет его данные в Realtime Database.
      */
     private void registerUser() {
         // Считываем введённые данные
@@ -90,32 +187,48 @@ public class RegisterActivity extends AppCompatActivity {
         String password = etPassword.getText().toString().trim();
 
         // Проверка полей
-        if (TextUtils.isEmpty(name)) {
-            etName.setError("Имя не может быть пустым");
-            etName.requestFocus();
-            return;
-        }
-        if (TextUtils.isEmpty(email)) {
-            etEmail.setError("Email не может быть пустым");
-            etEmail.requestFocus();
-            return;
-        }
-        if (TextUtils.isEmpty(password)) {
-            etPassword.setError("Пароль не может быть пустым");
-            etPassword.requestFocus();
-            return;
-        }
-        if (password.length() < 6) {
-            etPassword.setError("Пароль должен быть не менее 6 символов");
-            etPassword.requestFocus();
+        RegistrationValidator.Error error = RegistrationValidator.validate(name, email, password, passwordPolicy);
+        if (error != null) {
+            blockRegistration("register.blocked." + error.getField().name().toLowerCase(Locale.ROOT),
+                    fieldFor(error.getField()), error.getMessage());
             return;
         }
 
-        // Отображаем индикатор загрузки
+        // Отображаем индикатор загрузки; повторное нажатие до ответа не создаёт второй запрос
         progressBar.setVisibility(View.VISIBLE);
+        btnRegister.setEnabled(false);
 
+        // Отложенная проверка больше не нужна — проверяем сразу
+        emailChecker.cancel();
+        emailChecker.check(email).addOnCompleteListener(this, task -> {
+            if (task.isSuccessful() && task.getResult()) {
+                progressBar.setVisibility(View.GONE);
+                btnRegister.setEnabled(true);
+                blockRegistration("register.blocked.emailTaken", etEmail, EMAIL_TAKEN);
+                return;
+            }
+            // Если индекс прочитать не удалось, решение примет Firebase Authentication
+            createAccount(name, email, password);
+        });
+    }
+
+    /**
+     * Показывает ошибку у поля и учитывает регистрацию, не отправленную в Firebase Authentication.
+     */
+    private void blockRegistration(String counter, EditText field, String message) {
+        FirebaseMetrics.increment(counter);
+        FirebaseMetrics.increment("auth.roundTripsAvoided");
+        field.setError(message);
+        field.requestFocus();
+    }
+
+    /**
+     * Создаёт пользователя в Firebase Authentication и сохраняет его данные.
+     */
+    private void createAccount(String name, String email, String password) {
         // Создаём пользователя в Firebase Authentication
-        mAuth.createUserWithEmailAndPassword(email, password)
+        // Регистрация выполняется через AuthClient: повторы при сбоях сети и защита от двойного нажатия
+        AuthClient.getInstance(this).createUser(email, password)
                 .addOnCompleteListener(this, task -> {
                     if (task.isSuccessful()) {
                         // Регистрация успешна — получаем UID пользователя
@@ -126,6 +239,11 @@ public class RegisterActivity extends AppCompatActivity {
                     } else {
                         // Ошибка регистрации
                         progressBar.setVisibility(View.GONE);
+                        btnRegister.setEnabled(true);
+                        if (task.getException() instanceof FirebaseAuthUserCollisionException) {
+                            // Email занят, но отсутствует в индексе — запоминаем до конца сессии
+                            EmailAvailabilityChecker.markTaken(email);
+                        }
                         Toast.makeText(RegisterActivity.this,
                                 "Ошибка регистрации: " + task.getException().getMessage(),
                                 Toast.LENGTH_LONG).show();
@@ -133,43 +251,73 @@ public class RegisterActivity extends AppCompatActivity {
                 });
     }
 
+    /**
+     * Возвращает поле ввода, к которому относится ошибка проверки.
+     */
+    private EditText fieldFor(RegistrationValidator.Field field) {
+        switch (field) {
+            case NAME:
+                return etName;
+            case EMAIL:
+                return etEmail;
+            default:
+                return etPassword;
+        }
+    }
+
     /**
      * Сохраняет данные пользователя (имя, email, дата регистрации)
-     * в Firebase Realtime Database в узел "Users/{uid}".
+     * в Firebase Realtime Database в узел "Users/{uid}"
+     * и запись индекса "UsersByEmail/{email}" = uid (см. EmailIndex).
      *
      * @param uid  — уникальный идентификатор пользователя (из Firebase Authentication)
      * @param name — имя пользователя
      * @param email — email пользователя
      */
     private void saveUserDataToDatabase(String uid, String name, String email) {
-        // Форматируем дату регистрации
-        String regDate = new SimpleDateFormat("dd-MM-yyyy", Locale.getDefault()).format(new Date());
-
-        // Создаём объект User
+        // Создаём объект User; время регистрации назначит сервер (ServerValue.TIMESTAMP)
         User user = new User(name, email);
-        user.setRegistrationDate(regDate);
 
-        // Сохраняем объект в базе данных Firebase
-        mDatabase.child("Users").child(uid).setValue(user)
-                .addOnCompleteListener(task -> {
-                    progressBar.setVisibility(View.GONE);
+        // Сохраняем профиль (в шард пользователя) и запись индекса UsersByEmail (в основную базу).
+        // Если шард один, это одно атомарное обновление
+        Task<Void> write = FirebaseMetrics.track("db.saveProfile",
+                userShards.updateChildren(EmailIndex.registrationUpdates(uid, user)));
 
-                    if (task.isSuccessful()) {
-                        // Данные успешно сохранены
-                        Toast.makeText(RegisterActivity.this,
-                                "Регистрация прошла успешно!", Toast.LENGTH_SHORT).show();
+        if (FirebaseSetup.isOfflineFirst()) {
+            // В офлайн-режиме запись уже применена локально и будет отправлена
+            // на сервер при появлении сети — не ждём подтверждения
+            progressBar.setVisibility(View.GONE);
+            Toast.makeText(RegisterActivity.this,
+                    "Регистрация прошла успешно!", Toast.LENGTH_SHORT).show();
+            goToLogin();
+            return;
+        }
 
-                        // Переход на экран входа
-                        Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
-                        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-                        startActivity(intent);
-                        finish();
-                    } else {
-                        // Ошибка сохранения данных
-                        Toast.makeText(RegisterActivity.this,
-                                "Ошибка сохранения данных: " + task.getException().getMessage(),
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
+        write.addOnCompleteListener(task -> {
+            progressBar.setVisibility(View.GONE);
+
+            if (task.isSuccessful()) {
+                // Данные успешно сохранены
+                Toast.makeText(RegisterActivity.this,
+                        "Регистрация прошла успешно!", Toast.LENGTH_SHORT).show();
+                goToLogin();
+            } else {
+                // Ошибка сохранения данных
+                btnRegister.setEnabled(true);
+                Toast.makeText(RegisterActivity.this,
+                        "Ошибка сохранения данных: " + task.getException().getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Переход на экран входа после успешной регистрации.
+     */
+    private void goToLogin() {
+        Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(intent);
+        finish();
     }
-}
+}
\ No newline at end of file
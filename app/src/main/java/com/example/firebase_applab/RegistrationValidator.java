@@ -0,0 +1,179 @@
+package com.example.firebase_applab;
+
+import java.util.regex.Pattern;
+
+/**
+ * RegistrationValidator — проверка данных формы регистрации.
+ *
+ * Назначение:
+ * 1. Проверяет имя, email и пароль до обращения к Firebase.
+ * 2. Проверяет синтаксис email заранее скомпилированным выражением EMAIL_PATTERN.
+ * 3. Проверяет пароль по настраиваемой политике (PasswordPolicy).
+ * 4. Возвращает первое найденное нарушение: поле и текст ошибки для показа пользователю.
+ *    Каждое поле можно проверить отдельно — по мере ввода.
+ *
+ * Занятость email проверяет EmailAvailabilityChecker.
+ * Класс не зависит от Android API, поэтому его можно проверять и замерять на JVM.
+ */
+public final class RegistrationValidator {
+
+    /** Минимальная длина пароля (требование Firebase Authentication) */
+    public static final int MIN_PASSWORD_LENGTH = 6;
+
+    /** Максимальная длина email (RFC 5321) */
+    public static final int MAX_EMAIL_LENGTH = 254;
+
+    /**
+     * Синтаксис email: локальная часть из допустимых символов с точками между ними,
+     * домен из меток через точку, домен верхнего уровня начинается с буквы и не короче
+     * двух символов. Буквы — любые Unicode, поэтому проходят кириллические домены
+     * (пример.рф) и их punycode-запись (xn--e1afmkfd.xn--p1ai). Проверка отсекает
+     * только заведомо неверный ввод — окончательное решение за Firebase Authentication.
+     */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "[\\p{L}\\p{N}!#$%&'*+/=?^_`{|}~-]+(?:\\.[\\p{L}\\p{N}!#$%&'*+/=?^_`{|}~-]+)*"
+                    + "@(?:[\\p{L}\\p{N}](?:[\\p{L}\\p{N}-]*[\\p{L}\\p{N}])?\\.)+"
+                    + "\\p{L}[\\p{L}\\p{N}-]*[\\p{L}\\p{N}]");
+
+    /** Поле формы, к которому относится ошибка */
+    public enum Field {
+        NAME, EMAIL, PASSWORD
+    }
+
+    /**
+     * Ошибка проверки: поле и сообщение.
+     */
+    public static final class Error {
+        private final Field field;
+        private final String message;
+
+        Error(Field field, String message) {
+            this.field = field;
+            this.message = message;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Требования к паролю.
+     */
+    public static final class PasswordPolicy {
+
+        /** Политика по умолчанию: только минимальная длина Firebase Authentication */
+        public static final PasswordPolicy DEFAULT = new PasswordPolicy(MIN_PASSWORD_LENGTH, false, false);
+
+        private final int minLength;
+        private final boolean requireLetter;
+        private final boolean requireDigit;
+
+        /**
+         * @param minLength     минимальная длина (не меньше MIN_PASSWORD_LENGTH)
+         * @param requireLetter нужна ли хотя бы одна буква
+         * @param requireDigit  нужна ли хотя бы одна цифра
+         */
+        public PasswordPolicy(int minLength, boolean requireLetter, boolean requireDigit) {
+            this.minLength = Math.max(minLength, MIN_PASSWORD_LENGTH);
+            this.requireLetter = requireLetter;
+            this.requireDigit = requireDigit;
+        }
+
+        public int getMinLength() {
+            return minLength;
+        }
+
+        /**
+         * Проверяет пароль.
+         *
+         * @return текст ошибки или null, если пароль подходит
+         */
+        String check(String password) {
+            if (password.length() < minLength) {
+                return "Пароль должен быть не менее " + minLength + " символов";
+            }
+            if (!requireLetter && !requireDigit) {
+                return null;
+            }
+            boolean hasLetter = false;
+            boolean hasDigit = false;
+            for (int i = 0; i < password.length(); i++) {
+                char c = password.charAt(i);
+                hasLetter |= Character.isLetter(c);
+                hasDigit |= Character.isDigit(c);
+            }
+            if (requireLetter && !hasLetter) {
+                return "Пароль должен содержать хотя бы одну букву";
+            }
+            if (requireDigit && !hasDigit) {
+                return "Пароль должен содержать хотя бы одну цифру";
+            }
+            return null;
+        }
+    }
+
+    private RegistrationValidator() {
+        // Утилитный класс
+    }
+
+    /**
+     * Проверяет данные формы регистрации с политикой паролей по умолчанию.
+     *
+     * @return первая найденная ошибка или null, если данные корректны
+     */
+    public static Error validate(String name, String email, String password) {
+        return validate(name, email, password, PasswordPolicy.DEFAULT);
+    }
+
+    /**
+     * Проверяет данные формы регистрации (значения уже без пробелов по краям).
+     *
+     * @param policy требования к паролю
+     * @return первая найденная ошибка или null, если данные корректны
+     */
+    public static Error validate(String name, String email, String password, PasswordPolicy policy) {
+        Error error = validateName(name);
+        if (error == null) {
+            error = validateEmail(email);
+        }
+        if (error == null) {
+            error = validatePassword(password, policy);
+        }
+        return error;
+    }
+
+    /** Проверяет имя; null — имя подходит */
+    public static Error validateName(String name) {
+        return isEmpty(name) ? new Error(Field.NAME, "Имя не может быть пустым") : null;
+    }
+
+    /** Проверяет синтаксис email; null — email подходит */
+    public static Error validateEmail(String email) {
+        if (isEmpty(email)) {
+            return new Error(Field.EMAIL, "Email не может быть пустым");
+        }
+        // Длина проверяется до выражения, чтобы не разбирать заведомо неверный ввод
+        if (email.length() > MAX_EMAIL_LENGTH || !EMAIL_PATTERN.matcher(email).matches()) {
+            return new Error(Field.EMAIL, "Некорректный email");
+        }
+        return null;
+    }
+
+    /** Проверяет пароль по политике; null — пароль подходит */
+    public static Error validatePassword(String password, PasswordPolicy policy) {
+        if (isEmpty(password)) {
+            return new Error(Field.PASSWORD, "Пароль не может быть пустым");
+        }
+        String message = policy.check(password);
+        return message == null ? null : new Error(Field.PASSWORD, message);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.firebase_applab;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+/**
+ * RouterActivity — точка входа приложения (launcher) без интерфейса.
+ *
+ * Назначение:
+ * 1. Сразу при запуске проверяет, авторизован ли пользователь.
+ * 2. Открывает нужный экран напрямую: MainActivity или LoginActivity.
+ *
+ * Раньше launcher-ом была MainActivity: она загружала разметку activity_main
+ * и только потом проверяла авторизацию, поэтому при холодном старте без входа
+ * разметка создавалась впустую и запускались две Activity подряд.
+ * Здесь нет setContentView(), а тема Theme.NoDisplay не рисует окно.
+ * Firebase к этому моменту обычно уже настроен в фоне (FirebaseInitializer).
+ */
+public class RouterActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        long start = SystemClock.uptimeMillis();
+
+        // Решение о маршруте принимается до создания какого-либо интерфейса
+        boolean signedIn = FirebaseSetup.getAuth(this).getCurrentUser() != null;
+        StartupTimer.setPath(signedIn ? StartupTimer.PATH_SIGNED_IN : StartupTimer.PATH_SIGNED_OUT);
+
+        Class<?> target = signedIn ? MainActivity.class : LoginActivity.class;
+        startActivity(new Intent(this, target));
+        StartupTimer.recordStage(StartupTimer.STAGE_ROUTER, SystemClock.uptimeMillis() - start);
+
+        // Activity с темой Theme.NoDisplay обязана завершиться до onResume()
+        finish();
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.firebase_applab;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ShardRebalancer — перенос профилей между шардами после изменения списка шардов.
+ *
+ * Назначение:
+ * 1. Обходит узел "Users" каждого источника порциями по BATCH_SIZE записей
+ *    (orderByKey().startAfter(lastKey).limitToFirst(n)). Источники — текущие шарды,
+ *    основная база и шарды прежней раскладки (UserShards.getSources()).
+ * 2. Профили, которые по текущему ShardRouter принадлежат другому шарду,
+ *    переносит в него транзакцией по узлу профиля: отсутствующий профиль копируется
+ *    целиком, у существующего дополняются только отсутствующие поля. Данные, которые
+ *    новая версия приложения уже записала в шард-получатель, не перезаписываются.
+ * 3. В режиме deleteMoved после успешного переноса удаляет перенесённые профили
+ *    из источника.
+ * 4. Считает количество профилей в каждом источнике и шарде (Report) —
+ *    без переноса (report()) это отчёт о распределении нагрузки.
+ *
+ * Порядок при добавлении шарда: новая версия приложения с дополненным списком
+ * user_shard_urls и прежним списком в user_shard_previous_urls, запуск
+ * rebalance(false) — профили появляются в новых шардах, старые версии продолжают
+ * читать прежние; когда старых версий не осталось — rebalance(true) удаляет оригиналы.
+ * Повторный запуск безопасен: перенос не перезаписывает существующие поля.
+ */
+public class ShardRebalancer {
+
+    private static final String TAG = "ShardRebalancer";
+
+    /** Количество профилей, читаемых за один шаг */
+    private static final int BATCH_SIZE = 500;
+
+    /** Выбор шарда по uid */
+    private final ShardRouter router;
+
+    /** Корни баз шардов в порядке router.getShards() */
+    private final List<DatabaseReference> roots;
+
+    /** Базы, из которых читаются профили: шарды и прежние места хранения */
+    private final List<DatabaseReference> sources;
+
+    /** Номер шарда для каждого источника; -1 — источник не является текущим шардом */
+    private final int[] shardOfSource;
+
+    public ShardRebalancer(ShardRouter router, List<DatabaseReference> roots) {
+        this(router, roots, roots);
+    }
+
+    /**
+     * @param router  выбор шарда по uid
+     * @param roots   корни баз шардов в порядке router.getShards()
+     * @param sources базы, в которых могут лежать профили (включая шарды)
+     */
+    public ShardRebalancer(ShardRouter router, List<DatabaseReference> roots, List<DatabaseReference> sources) {
+        if (router.size() != roots.size()) {
+            throw new IllegalArgumentException("Количество шардов и баз не совпадает");
+        }
+        this.router = router;
+        this.roots = roots;
+        this.sources = sources;
+        shardOfSource = new int[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            shardOfSource[i] = -1;
+            for (int shard = 0; shard < roots.size(); shard++) {
+                if (roots.get(shard).toString().equals(sources.get(i).toString())) {
+                    shardOfSource[i] = shard;
+                }
+            }
+        }
+    }
+
+    public ShardRebalancer(UserShards shards) {
+        this(shards.getRouter(), shards.getRoots(), shards.getSources());
+    }
+
+    /**
+     * Подсчитывает профили в каждом шарде, ничего не перенося.
+     */
+    public Task<Report> report() {
+        return scanSource(0, null, new Report(sources.size(), roots.size()), false, false);
+    }
+
+    /**
+     * Переносит профили в шарды, которым они принадлежат.
+     *
+     * @param deleteMoved удалять ли перенесённые профили из прежнего шарда
+     */
+    public Task<Report> rebalance(boolean deleteMoved) {
+        return scanSource(0, null, new Report(sources.size(), roots.size()), true, deleteMoved);
+    }
+
+    /**
+     * Читает следующую порцию профилей источника после ключа lastKey
+     * и переносит чужие; по окончании источника переходит к следующему.
+     */
+    private Task<Report> scanSource(int index, String lastKey, Report report, boolean move, boolean deleteMoved) {
+        if (index >= sources.size()) {
+            Log.i(TAG, report.toString());
+            return Tasks.forResult(report);
+        }
+        DatabaseReference source = sources.get(index);
+        int sourceShard = shardOfSource[index];
+        Query query = source.child(UserShards.USERS).orderByKey();
+        if (lastKey != null) {
+            query = query.startAfter(lastKey);
+        }
+
+        return query.limitToFirst(BATCH_SIZE).get().continueWithTask(task -> {
+            DataSnapshot batch = task.getResult();
+            Map<Integer, List<Task<Boolean>>> merges = new HashMap<>();
+            Map<String, Object> deletes = new HashMap<>();
+            String last = null;
+
+            for (DataSnapshot child : batch.getChildren()) {
+                last = child.getKey();
+                int target = router.shardFor(last);
+                report.before[index]++;
+                report.after[target]++;
+                if (target == sourceShard) {
+                    continue;
+                }
+                report.moved++;
+                if (!move) {
+                    continue;
+                }
+                List<Task<Boolean>> writes = merges.get(target);
+                if (writes == null) {
+                    writes = new ArrayList<>();
+                    merges.put(target, writes);
+                }
+                writes.add(mergeInto(roots.get(target).child(UserShards.USERS).child(last), child.getValue()));
+                deletes.put(UserShards.USERS + "/" + last, null);
+            }
+
+            // Порция пустая — источник обработан полностью
+            if (last == null) {
+                return scanSource(index + 1, null, report, move, deleteMoved);
+            }
+
+            String next = last;
+            boolean lastBatch = batch.getChildrenCount() < BATCH_SIZE;
+            List<Task<List<Boolean>>> written = new ArrayList<>(merges.size());
+            for (Map.Entry<Integer, List<Task<Boolean>>> writes : merges.entrySet()) {
+                written.add(FirebaseMetrics.track("db.shard" + writes.getKey() + ".rebalanceIn",
+                        Tasks.<Boolean>whenAllSuccess(writes.getValue())));
+            }
+            Task<Void> done = Tasks.<List<Boolean>>whenAllSuccess(written).continueWithTask(merged -> {
+                if (!merged.isSuccessful()) {
+                    return Tasks.forException(merged.getException());
+                }
+                for (List<Boolean> results : merged.getResult()) {
+                    for (Boolean changed : results) {
+                        if (changed) {
+                            report.merged++;
+                        }
+                    }
+                }
+                if (!deleteMoved || deletes.isEmpty()) {
+                    return Tasks.forResult(null);
+                }
+                return FirebaseMetrics.track("db.source" + index + ".rebalanceOut", PendingWrites.track(source.updateChildren(deletes)));
+            });
+            return done.continueWithTask(step -> {
+                if (!step.isSuccessful()) {
+                    return Tasks.forException(step.getException());
+                }
+                Log.d(TAG, "Источник " + index + ": перенесено " + report.moved);
+                return lastBatch
+                        ? scanSource(index + 1, null, report, move, deleteMoved)
+                        : scanSource(index, next, report, move, deleteMoved);
+            });
+        });
+    }
+
+    /**
+     * Переносит профиль в узел шарда-получателя транзакцией: отсутствующий узел
+     * записывается целиком, у существующего дополняются только отсутствующие поля.
+     *
+     * @return задача: true, если узел получателя изменился
+     */
+    private static Task<Boolean> mergeInto(DatabaseReference target, Object value) {
+        TaskCompletionSource<Boolean> result = new TaskCompletionSource<>();
+        target.runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData current) {
+                if (current.getValue() == null) {
+                    current.setValue(value);
+                    return Transaction.success(current);
+                }
+                if (!(value instanceof Map)) {
+                    return Transaction.abort();
+                }
+                boolean changed = false;
+                for (Map.Entry<?, ?> field : ((Map<?, ?>) value).entrySet()) {
+                    MutableData child = current.child(field.getKey().toString());
+                    if (child.getValue() == null) {
+                        child.setValue(field.getValue());
+                        changed = true;
+                    }
+                }
+                return changed ? Transaction.success(current) : Transaction.abort();
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    result.setException(error.toException());
+                } else {
+                    result.setResult(committed);
+                }
+            }
+        });
+        return PendingWrites.track(result.getTask());
+    }
+
+    /**
+     * Распределение профилей по шардам.
+     */
+    public static final class Report {
+
+        /** Профилей в каждом источнике при обходе (порядок UserShards.getSources()) */
+        public final int[] before;
+
+        /**
+         * Профилей в каждом шарде после переноса (по ShardRouter).
+         * Скопированный, но ещё не удалённый из прежнего шарда профиль учитывается дважды.
+         */
+        public final int[] after;
+
+        /** Профилей, хранившихся не в своём шарде */
+        public int moved;
+
+        /** Профилей, записанных или дополненных в шарде-получателе */
+        public int merged;
+
+        Report(int sources, int shards) {
+            before = new int[sources];
+            after = new int[shards];
+        }
+
+        /** Общее количество профилей */
+        public int total() {
+            int total = 0;
+            for (int count : before) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Отношение самого загруженного шарда к среднему (1.0 — идеально ровно).
+         */
+        public double imbalance() {
+            int max = 0;
+            for (int count : after) {
+                max = Math.max(max, count);
+            }
+            return total() == 0 ? 1.0 : max * after.length / (double) total();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < before.length; i++) {
+                sb.append("источник ").append(i).append(": ").append(before[i]).append('\n');
+            }
+            for (int i = 0; i < after.length; i++) {
+                sb.append("шард ").append(i).append(": ").append(after[i]).append('\n');
+            }
+            sb.append(String.format(Locale.ROOT, "перенесено: %d, записано: %d, неравномерность: %.2f",
+                    moved, merged, imbalance()));
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.firebase_applab;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ShardRouter — выбор шарда (экземпляра базы данных) для пользователя.
+ *
+ * Назначение:
+ * 1. Детерминированно отображает uid на один из N шардов с помощью
+ *    согласованного хеширования: каждый шард занимает VIRTUAL_NODES точек
+ *    на кольце 64-битных хешей, uid принадлежит первой точке по часовой стрелке.
+ * 2. При добавлении шарда к новому шарду переходит примерно 1/N пользователей,
+ *    остальные остаются на месте (см. ShardRebalancer).
+ *
+ * Положение шарда на кольце зависит только от его идентификатора (URL базы),
+ * а не от порядка в списке, поэтому список можно дополнять в любом месте.
+ * Класс не зависит от Android API.
+ */
+public final class ShardRouter {
+
+    /** Количество точек каждого шарда на кольце */
+    static final int VIRTUAL_NODES = 160;
+
+    /** Идентификаторы шардов в порядке конфигурации */
+    private final List<String> shards;
+
+    /** Кольцо: хеш точки → номер шарда */
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param shards идентификаторы шардов (например, URL баз данных), не пустой список
+     */
+    public ShardRouter(List<String> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один шард");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash(shards.get(shard) + "#" + node), shard);
+            }
+        }
+    }
+
+    /** Идентификаторы шардов */
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /** Количество шардов */
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * Номер шарда пользователя.
+     *
+     * @param uid идентификатор пользователя
+     * @return номер шарда в списке getShards()
+     */
+    public int shardFor(String uid) {
+        if (shards.size() == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(hash(uid));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 64-битный хеш строки: FNV-1a по байтам UTF-8 с финальным перемешиванием
+     * (из MurmurHash3), чтобы близкие строки расходились по всему кольцу.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
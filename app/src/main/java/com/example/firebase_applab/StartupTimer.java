@@ -0,0 +1,139 @@
+package com.example.firebase_applab;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StartupTimer — замер времени холодного старта до первого кадра.
+ *
+ * Назначение:
+ * 1. Запоминает, по какому пути пошёл запуск (пользователь вошёл / не вошёл).
+ * 2. Собирает длительность этапов старта (recordStage): инициализаторы,
+ *    Application.onCreate, фоновая инициализация Firebase, ожидание Firebase
+ *    в главном потоке, RouterActivity.
+ * 3. Для первого экрана после старта процесса фиксирует момент первой отрисовки
+ *    и пишет в лог время от старта процесса до первого кадра вместе с этапами.
+ *    Этапы также попадают в FirebaseMetrics ("startup.<этап>").
+ *
+ * Результат можно собрать командой: adb logcat -s StartupTimer
+ */
+public final class StartupTimer {
+
+    private static final String TAG = "StartupTimer";
+
+    /** Пользователь авторизован — первым открывается MainActivity */
+    public static final String PATH_SIGNED_IN = "signed_in";
+
+    /** Пользователь не авторизован — первым открывается LoginActivity */
+    public static final String PATH_SIGNED_OUT = "signed_out";
+
+    // Этапы старта
+    /** От старта процесса до запуска инициализаторов App Startup */
+    public static final String STAGE_PROCESS_TO_INITIALIZERS = "processToInitializers";
+
+    /** Время главного потока в FirebaseInitializer.create() */
+    public static final String STAGE_INITIALIZER = "initializer";
+
+    /** Инициализация Firebase в фоновом потоке */
+    public static final String STAGE_FIREBASE_INIT = "firebaseInit";
+
+    /** Время главного потока в Application.onCreate() */
+    public static final String STAGE_APPLICATION = "applicationOnCreate";
+
+    /** Ожидание инициализации Firebase в главном потоке */
+    public static final String STAGE_FIREBASE_MAIN_WAIT = "firebaseMainWait";
+
+    /** Время главного потока в RouterActivity.onCreate() */
+    public static final String STAGE_ROUTER = "routerOnCreate";
+
+    /** Длительность этапов старта, мс (в порядке записи) */
+    private static final Map<String, Long> stages = new LinkedHashMap<>();
+
+    /** Путь текущего запуска (null — процесс запущен не через RouterActivity) */
+    private static String path;
+
+    /** Первый кадр уже замерен — последующие экраны не учитываются */
+    private static boolean reported;
+
+    private StartupTimer() {
+        // Утилитный класс
+    }
+
+    /**
+     * Сохраняет путь запуска. Вызывается из RouterActivity.
+     */
+    public static void setPath(String startupPath) {
+        path = startupPath;
+    }
+
+    /**
+     * Записывает длительность этапа старта. Повторные записи одного этапа суммируются.
+     * Можно вызывать из любого потока.
+     */
+    public static void recordStage(String stage, long durationMs) {
+        synchronized (stages) {
+            Long previous = stages.get(stage);
+            stages.put(stage, previous == null ? durationMs : previous + durationMs);
+        }
+    }
+
+    /** Время от старта процесса, мс */
+    public static long sinceProcessStart() {
+        return SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+    }
+
+    /**
+     * Замеряет время до первого кадра указанного экрана.
+     * Срабатывает только один раз за время жизни процесса и только для
+     * запусков через RouterActivity (тёплые переходы между экранами не учитываются).
+     *
+     * @param activity экран, первый кадр которого нужно замерить
+     */
+    public static void onFirstFrame(Activity activity) {
+        if (reported || path == null) {
+            return;
+        }
+        reported = true;
+
+        View decorView = activity.getWindow().getDecorView();
+        Handler handler = new Handler(Looper.getMainLooper());
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                long elapsed = sinceProcessStart();
+                String breakdown;
+                synchronized (stages) {
+                    breakdown = stages.toString();
+                    for (Map.Entry<String, Long> stage : stages.entrySet()) {
+                        FirebaseMetrics.recordLatency("startup." + stage.getKey(), stage.getValue());
+                    }
+                }
+                FirebaseMetrics.recordLatency("startup.firstFrame." + path, elapsed);
+                Log.i(TAG, "Первый кадр [" + path + "] " + activity.getClass().getSimpleName()
+                        + ": " + elapsed + " мс от старта процесса, этапы: " + breakdown);
+
+                // Слушатель нельзя удалять внутри onDraw()
+                handler.post(() -> {
+                    if (decorView.getViewTreeObserver().isAlive()) {
+                        decorView.getViewTreeObserver().removeOnDrawListener(this);
+                    }
+                });
+            }
+        });
+    }
+}
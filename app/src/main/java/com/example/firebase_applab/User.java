@@ -1,9 +1,16 @@
 package com.example.firebase_applab;
 
+import java.util.Objects;
+
 /**
  * Модель данных пользователя для Firebase.
  * Содержит поля, пустой конструктор и конструктор с параметрами,
  * а также геттеры и сеттеры.
+ *
+ * Версии схемы профиля:
+ * v1 — дата регистрации строкой "dd-MM-yyyy" (registrationDate);
+ * v2 — время регистрации в миллисекундах (registeredAt) и номер версии (schemaVersion).
+ * Записи v1 переводятся в v2 при первом чтении (см. UserMapper).
  */
 public class User {
 
@@ -11,6 +18,8 @@ public class User {
     private String name;
     private String email;
     private String registrationDate;
+    private Long registeredAt;
+    private int schemaVersion;
 
     /**
      * Пустой конструктор.
@@ -57,4 +66,47 @@ public class User {
     public void setRegistrationDate(String registrationDate) {
         this.registrationDate = registrationDate;
     }
+
+    /**
+     * Время регистрации в миллисекундах с начала эпохи (схема v2).
+     * null — время ещё не назначено сервером или неизвестно.
+     */
+    public Long getRegisteredAt() {
+        return registeredAt;
+    }
+
+    public void setRegisteredAt(Long registeredAt) {
+        this.registeredAt = registeredAt;
+    }
+
+    /** Версия схемы, в которой профиль хранится в базе */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public void setSchemaVersion(int schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Сравнение по содержимому.
+     * Используется, чтобы не перерисовывать экран, если данные из базы
+     * совпадают с уже показанными (например, из локального кэша).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof User)) return false;
+        User other = (User) o;
+        return Objects.equals(name, other.name)
+                && Objects.equals(email, other.email)
+                && Objects.equals(registrationDate, other.registrationDate)
+                && Objects.equals(registeredAt, other.registeredAt)
+                && schemaVersion == other.schemaVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, email, registrationDate, registeredAt, schemaVersion);
+    }
 }
\ No newline at end of file
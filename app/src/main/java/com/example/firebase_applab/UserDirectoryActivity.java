@@ -0,0 +1,246 @@
+package com.example.firebase_applab;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UserDirectoryActivity — справочник зарегистрированных пользователей.
+ *
+ * Назначение:
+ * 1. Показывает список пользователей из узла "Users" постранично (UserPager).
+ * 2. Заранее подгружает следующую страницу, когда до конца списка
+ *    остаётся меньше PREFETCH_DISTANCE строк.
+ * 3. Открывает массовый импорт и запускает фоновое обновление данных пользователей
+ *    (только для администратора, см. AdminAccess).
+ * 4. Ищет пользователей по началу имени или email в локальном индексе
+ *    (UserSearchIndex) — на каждое нажатие клавиши без запросов к Firebase.
+ * 5. При нескольких шардах профилей (UserShards) переносит профили в их шарды
+ *    после изменения списка шардов (ShardRebalancer) — тоже только для администратора.
+ */
+public class UserDirectoryActivity extends AppCompatActivity {
+
+    /** За сколько строк до конца списка начинать загрузку следующей страницы */
+    private static final int PREFETCH_DISTANCE = UserPager.PAGE_SIZE / 2;
+
+    /** Максимальное количество результатов поиска */
+    private static final int SEARCH_LIMIT = 100;
+
+    /** Индикатор загрузки */
+    private ProgressBar progressBar;
+
+    /** Адаптер списка */
+    private UserListAdapter adapter;
+
+    /** Менеджер раскладки списка (нужен для определения позиции прокрутки) */
+    private LinearLayoutManager layoutManager;
+
+    /** Постраничный загрузчик пользователей */
+    private UserPager pager;
+
+    /** Все загруженные строки */
+    private final List<UserEntry> rows = new ArrayList<>();
+
+    /** Синхронизация поискового индекса */
+    private UserSearchSync searchSync;
+
+    /** Шарды профилей */
+    private UserShards shards;
+
+    /** Текущий поисковый запрос (пустой — показывается постраничный список) */
+    private String query = "";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_user_directory);
+
+        shards = UserShards.getInstance(this);
+        pager = new UserPager(shards.getRoots());
+        searchSync = UserSearchSync.getInstance(this);
+
+        // Привязка элементов интерфейса
+        progressBar = findViewById(R.id.directoryProgressBar);
+        RecyclerView rvUsers = findViewById(R.id.rvUsers);
+
+        adapter = new UserListAdapter();
+        layoutManager = new LinearLayoutManager(this);
+        rvUsers.setLayoutManager(layoutManager);
+        rvUsers.setAdapter(adapter);
+        rvUsers.setHasFixedSize(true);
+
+        // Переход к массовому импорту пользователей
+        View btnBulkImport = findViewById(R.id.btnBulkImport);
+        btnBulkImport.setOnClickListener(v ->
+                startActivity(new Intent(UserDirectoryActivity.this, BulkProvisioningActivity.class)));
+
+        // Фоновое обновление данных: индекс email и перевод профилей в текущую схему
+        View btnMigrateData = findViewById(R.id.btnMigrateData);
+        btnMigrateData.setOnClickListener(v -> migrateData(v));
+
+        // Перенос профилей между шардами (кнопка нужна, только если шардов несколько)
+        View btnRebalanceShards = findViewById(R.id.btnRebalanceShards);
+        btnRebalanceShards.setOnClickListener(v -> rebalanceShards(v));
+
+        // Административные действия скрыты, пока не подтверждён доступ
+        AdminAccess.check(FirebaseSetup.getAuth(this)).addOnSuccessListener(this, admin -> {
+            if (!admin) {
+                return;
+            }
+            btnBulkImport.setVisibility(View.VISIBLE);
+            btnMigrateData.setVisibility(View.VISIBLE);
+            btnRebalanceShards.setVisibility(shards.getRoots().size() > 1 ? View.VISIBLE : View.GONE);
+        });
+
+        // Поиск по мере ввода
+        EditText etUserSearch = findViewById(R.id.etUserSearch);
+        etUserSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s.toString());
+            }
+        });
+
+        // Подгрузка следующей страницы при прокрутке
+        rvUsers.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                maybeLoadMore();
+            }
+        });
+
+        loadNextPage();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        searchSync.attach(shards.getRoots());
+    }
+
+    @Override
+    protected void onStop() {
+        searchSync.detach();
+        super.onStop();
+    }
+
+    /**
+     * Показывает результаты поиска или, если запрос пустой, постраничный список.
+     */
+    private void search(String text) {
+        query = text.trim();
+        if (query.isEmpty()) {
+            adapter.submitList(new ArrayList<>(rows));
+            return;
+        }
+        adapter.submitList(searchSync.getIndex().search(query, SEARCH_LIMIT));
+    }
+
+    /**
+     * Заполняет индекс UsersByEmail и переводит профили в текущую версию схемы
+     * в каждом шарде по очереди.
+     * Обе операции идут порциями и безопасны при повторном запуске.
+     */
+    private void migrateData(View button) {
+        button.setEnabled(false);
+        DatabaseReference indexRoot = shards.getPrimaryRoot();
+
+        Task<Integer> migrated = Tasks.forResult(0);
+        for (DatabaseReference root : shards.getRoots()) {
+            migrated = migrated.continueWithTask(previous -> {
+                int count = previous.getResult();
+                return new EmailIndexBackfill(root, indexRoot).run()
+                        .continueWithTask(indexed -> new ProfileSchemaMigrator(root).run())
+                        .continueWith(task -> count + task.getResult());
+            });
+        }
+        migrated.addOnCompleteListener(this, task -> {
+            button.setEnabled(true);
+            Toast.makeText(UserDirectoryActivity.this, task.isSuccessful()
+                    ? "Данные обновлены, переведено профилей: " + task.getResult()
+                    : "Ошибка обновления: " + task.getException().getMessage(),
+                    Toast.LENGTH_LONG).show();
+        });
+    }
+
+    /**
+     * Копирует профили в шарды, которым они принадлежат по текущему списку шардов.
+     * Оригиналы не удаляются: их удаляет повторный запуск с deleteMoved,
+     * когда не останется версий приложения со старым списком.
+     */
+    private void rebalanceShards(View button) {
+        button.setEnabled(false);
+        new ShardRebalancer(shards).rebalance(false).addOnCompleteListener(this, task -> {
+            button.setEnabled(true);
+            Toast.makeText(UserDirectoryActivity.this, task.isSuccessful()
+                    ? task.getResult().toString()
+                    : "Ошибка переноса: " + task.getException().getMessage(),
+                    Toast.LENGTH_LONG).show();
+        });
+    }
+
+    /**
+     * Запрашивает следующую страницу, если пользователь приблизился к концу списка.
+     */
+    private void maybeLoadMore() {
+        if (!query.isEmpty()) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= rows.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Загружает следующую страницу и добавляет её в список.
+     */
+    private void loadNextPage() {
+        if (!pager.canLoadMore()) {
+            return;
+        }
+        progressBar.setVisibility(View.VISIBLE);
+
+        pager.loadNext().addOnCompleteListener(this, task -> {
+            progressBar.setVisibility(View.GONE);
+
+            if (task.isSuccessful()) {
+                rows.addAll(task.getResult());
+                if (query.isEmpty()) {
+                    adapter.submitList(new ArrayList<>(rows));
+                }
+                // Последняя страница шарда может быть короткой — список ещё не заполнил экран
+                maybeLoadMore();
+            } else {
+                Toast.makeText(UserDirectoryActivity.this,
+                        "Ошибка загрузки: " + task.getException().getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+}
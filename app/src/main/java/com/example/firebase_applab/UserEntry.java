@@ -0,0 +1,27 @@
+package com.example.firebase_applab;
+
+/**
+ * UserEntry — строка списка пользователей: uid и профиль.
+ * Используется экраном справочника пользователей (UserDirectoryActivity).
+ */
+public class UserEntry {
+
+    /** Уникальный идентификатор пользователя (ключ узла "Users/{uid}") */
+    private final String uid;
+
+    /** Профиль пользователя */
+    private final User user;
+
+    public UserEntry(String uid, User user) {
+        this.uid = uid;
+        this.user = user;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public User getUser() {
+        return user;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.firebase_applab;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * UserListAdapter — адаптер списка пользователей для RecyclerView.
+ *
+ * Изменения списка вычисляются через DiffUtil, поэтому при подгрузке страницы
+ * перерисовываются только новые строки. При привязке строки новые объекты
+ * не создаются: имя и email передаются в TextView как есть.
+ */
+public class UserListAdapter extends ListAdapter<UserEntry, UserListAdapter.ViewHolder> {
+
+    /** Сравнение строк: одна и та же строка — тот же uid */
+    private static final DiffUtil.ItemCallback<UserEntry> DIFF = new DiffUtil.ItemCallback<UserEntry>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull UserEntry oldItem, @NonNull UserEntry newItem) {
+            return oldItem.getUid().equals(newItem.getUid());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull UserEntry oldItem, @NonNull UserEntry newItem) {
+            return oldItem.getUser().equals(newItem.getUser());
+        }
+    };
+
+    public UserListAdapter() {
+        super(DIFF);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_user, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        User user = getItem(position).getUser();
+        holder.tvName.setText(user.getName());
+        holder.tvEmail.setText(user.getEmail());
+    }
+
+    /**
+     * Хранит ссылки на элементы строки, чтобы не вызывать findViewById при каждой привязке.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName;
+        final TextView tvEmail;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tvItemUserName);
+            tvEmail = itemView.findViewById(R.id.tvItemUserEmail);
+        }
+    }
+}
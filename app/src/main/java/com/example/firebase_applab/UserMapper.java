@@ -0,0 +1,170 @@
+package com.example.firebase_applab;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.ServerValue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * UserMapper — преобразование User в формат Firebase и обратно без рефлексии.
+ *
+ * Назначение:
+ * 1. Заменяет dataSnapshot.getValue(User.class) и setValue(user), которые
+ *    используют рефлексивный маппер Firebase (разбор геттеров/сеттеров
+ *    при первом вызове и лишние аллокации на каждый объект).
+ * 2. Поля читаются и записываются напрямую по именам ключей.
+ * 3. Читает обе версии схемы профиля (v1 и v2) и формирует обновление,
+ *    переводящее запись v1 в v2 (migrationUpdates).
+ *
+ * Схема v2:
+ * Users
+ *   └── UID12345
+ *         ├── name: "Иван"
+ *         ├── email: "ivan@example.com"
+ *         ├── registeredAt: 1760659200000   (серверное время, мс)
+ *         ├── updatedAt: 1760659200000      (серверное время последнего изменения, мс)
+ *         └── schemaVersion: 2
+ *
+ * updatedAt записывается при каждом изменении профиля (регистрация, правка полей,
+ * перевод схемы) и нужен только для выборки изменившихся профилей (UserSearchSync);
+ * в User не читается.
+ *
+ * Необязательные поля записываются только если заданы, а незнакомые ключи
+ * при чтении пропускаются — новые поля можно добавлять, не увеличивая
+ * размер существующих записей и не ломая старые версии приложения.
+ * При добавлении поля в User его нужно добавить и сюда.
+ */
+public final class UserMapper {
+
+    /** Текущая версия схемы профиля */
+    public static final int CURRENT_SCHEMA_VERSION = 2;
+
+    // Ключи полей в узле "Users/{uid}"
+    public static final String KEY_NAME = "name";
+    public static final String KEY_EMAIL = "email";
+    public static final String KEY_REGISTERED_AT = "registeredAt";
+    public static final String KEY_SCHEMA_VERSION = "schemaVersion";
+    public static final String KEY_UPDATED_AT = "updatedAt";
+
+    /** Дата регистрации строкой "dd-MM-yyyy" — только в записях v1 */
+    public static final String KEY_REGISTRATION_DATE = "registrationDate";
+
+    /** Формат даты регистрации в записях v1 */
+    private static final String V1_DATE_PATTERN = "dd-MM-yyyy";
+
+    private UserMapper() {
+        // Утилитный класс
+    }
+
+    /**
+     * Преобразует User в Map схемы v2 для setValue() / updateChildren().
+     * Если время регистрации не задано, записывается серверное время
+     * (ServerValue.TIMESTAMP). Пустые поля не записываются.
+     *
+     * @param user профиль пользователя
+     * @return значения полей по ключам
+     */
+    public static Map<String, Object> toMap(User user) {
+        Map<String, Object> map = new HashMap<>(6);
+        putIfNotNull(map, KEY_NAME, user.getName());
+        putIfNotNull(map, KEY_EMAIL, user.getEmail());
+        map.put(KEY_REGISTERED_AT, user.getRegisteredAt() != null ? user.getRegisteredAt() : ServerValue.TIMESTAMP);
+        map.put(KEY_SCHEMA_VERSION, CURRENT_SCHEMA_VERSION);
+        map.put(KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+        return map;
+    }
+
+    /**
+     * Читает User из снимка данных Firebase.
+     *
+     * @param snapshot снимок узла "Users/{uid}"
+     * @return профиль или null, если узла нет
+     */
+    public static User fromSnapshot(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        return fromMap((Map<?, ?>) value);
+    }
+
+    /**
+     * Читает User из «сырого» Map, который возвращает DataSnapshot.getValue().
+     * Для записи v1 время регистрации вычисляется из строки даты.
+     *
+     * @param map значения полей по ключам
+     * @return профиль пользователя
+     */
+    public static User fromMap(Map<?, ?> map) {
+        User user = new User(asString(map.get(KEY_NAME)), asString(map.get(KEY_EMAIL)));
+
+        Object version = map.get(KEY_SCHEMA_VERSION);
+        user.setSchemaVersion(version instanceof Number ? ((Number) version).intValue() : 1);
+
+        Object registeredAt = map.get(KEY_REGISTERED_AT);
+        if (registeredAt instanceof Number) {
+            user.setRegisteredAt(((Number) registeredAt).longValue());
+        }
+
+        String registrationDate = asString(map.get(KEY_REGISTRATION_DATE));
+        user.setRegistrationDate(registrationDate);
+        if (user.getRegisteredAt() == null && registrationDate != null) {
+            user.setRegisteredAt(parseV1Date(registrationDate));
+        }
+        return user;
+    }
+
+    /**
+     * Нужно ли перевести запись в текущую версию схемы.
+     */
+    public static boolean needsMigration(User user) {
+        return user.getSchemaVersion() < CURRENT_SCHEMA_VERSION;
+    }
+
+    /**
+     * Формирует обновление полей профиля, переводящее запись в схему v2.
+     * Ключи относительны узлу "Users/{uid}"; для multi-path записи от корня
+     * к ним добавляется префикс пути.
+     *
+     * @param user профиль, прочитанный через fromMap()
+     * @return карта "поле → значение" для updateChildren()
+     */
+    public static Map<String, Object> migrationUpdates(User user) {
+        Map<String, Object> updates = new HashMap<>(4);
+        // Если дату v1 разобрать не удалось, время регистрации остаётся неизвестным
+        updates.put(KEY_REGISTERED_AT, user.getRegisteredAt());
+        updates.put(KEY_SCHEMA_VERSION, CURRENT_SCHEMA_VERSION);
+        updates.put(KEY_REGISTRATION_DATE, null);
+        updates.put(KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+        return updates;
+    }
+
+    /**
+     * Преобразует дату v1 "dd-MM-yyyy" (локальная дата устройства при регистрации)
+     * в миллисекунды начала этого дня.
+     *
+     * @return время или null, если строку не удалось разобрать
+     */
+    static Long parseV1Date(String date) {
+        try {
+            return new SimpleDateFormat(V1_DATE_PATTERN, Locale.ROOT).parse(date).getTime();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    /** Приводит значение к строке (числа в базе могут прийти как Long/Double) */
+    private static String asString(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.firebase_applab;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * UserPager — постраничная загрузка узла "Users".
+ *
+ * Назначение:
+ * 1. Читает пользователей страницами по PAGE_SIZE с курсором по ключу
+ *    (orderByKey().startAfter(lastKey).limitToFirst(n)), поэтому объём чтения
+ *    зависит от количества просмотренных страниц, а не от общего числа пользователей.
+ * 2. Хранит последние загруженные страницы в ограниченном кэше в памяти,
+ *    чтобы повторное открытие экрана не читало их из сети заново.
+ * 3. При нескольких шардах профилей (UserShards) обходит их по очереди:
+ *    последняя страница шарда может быть короче PAGE_SIZE, затем чтение
+ *    продолжается с начала следующего шарда.
+ */
+public class UserPager {
+
+    private static final String TAG = "UserPager";
+
+    /** Количество пользователей на странице */
+    public static final int PAGE_SIZE = 50;
+
+    /** Максимальное количество страниц в кэше */
+    private static final int MAX_CACHED_PAGES = 20;
+
+    /** Ключ кэша для первой страницы */
+    private static final String FIRST_PAGE = "";
+
+    /** Кэш страниц по шарду и курсору (ключу, после которого начинается страница) */
+    private static final LruCache<String, Page> pageCache = new LruCache<>(MAX_CACHED_PAGES);
+
+    /** Корни баз шардов в порядке обхода */
+    private final List<DatabaseReference> roots;
+
+    /** Номер шарда, из которого читается следующая страница */
+    private int shard;
+
+    /** Ключ последнего загруженного пользователя (курсор для следующей страницы) */
+    private String lastKey;
+
+    /** Идёт загрузка страницы */
+    private boolean loading;
+
+    /** Все страницы загружены */
+    private boolean endReached;
+
+    /** Количество страниц, прочитанных из базы (без учёта кэша) */
+    private int networkReads;
+
+    public UserPager(DatabaseReference root) {
+        this(Collections.singletonList(root));
+    }
+
+    public UserPager(List<DatabaseReference> roots) {
+        this.roots = roots;
+    }
+
+    /** Можно ли сейчас запросить следующую страницу */
+    public boolean canLoadMore() {
+        return !loading && !endReached;
+    }
+
+    /** Количество страниц, прочитанных из базы (без учёта кэша) */
+    public int getNetworkReads() {
+        return networkReads;
+    }
+
+    /**
+     * Загружает следующую страницу.
+     *
+     * @return задача со списком пользователей страницы (пустой, если страниц больше нет)
+     */
+    public Task<List<UserEntry>> loadNext() {
+        if (!canLoadMore()) {
+            return Tasks.forResult(Collections.emptyList());
+        }
+        DatabaseReference root = roots.get(shard);
+        String cursor = root.toString() + "/" + (lastKey == null ? FIRST_PAGE : lastKey);
+
+        // Страница уже есть в кэше
+        Page cached = pageCache.get(cursor);
+        if (cached != null) {
+            onPage(cached);
+            return Tasks.forResult(cached.users);
+        }
+
+        Query query = root.child("Users").orderByKey();
+        if (lastKey != null) {
+            query = query.startAfter(lastKey);
+        }
+
+        loading = true;
+        return FirebaseMetrics.track("db.usersPage", query.limitToFirst(PAGE_SIZE).get()).continueWith(task -> {
+            loading = false;
+            DataSnapshot snapshot = task.getResult();
+
+            List<UserEntry> page = new ArrayList<>((int) snapshot.getChildrenCount());
+            for (DataSnapshot child : snapshot.getChildren()) {
+                User user = UserMapper.fromSnapshot(child);
+                if (user != null) {
+                    page.add(new UserEntry(child.getKey(), user));
+                }
+            }
+
+            networkReads++;
+            Log.d(TAG, "Страница загружена из базы: " + page.size()
+                    + " записей, всего чтений: " + networkReads);
+
+            // Курсор и конец шарда — по прочитанным узлам: пропущенные профили
+            // не должны укорачивать страницу и обрывать обход
+            Page result = new Page(page, (int) snapshot.getChildrenCount(), lastChildKey(snapshot));
+            pageCache.put(cursor, result);
+            onPage(result);
+            return page;
+        });
+    }
+
+    /** Ключ последнего узла выборки (null — выборка пуста) */
+    private static String lastChildKey(DataSnapshot snapshot) {
+        String key = null;
+        for (DataSnapshot child : snapshot.getChildren()) {
+            key = child.getKey();
+        }
+        return key;
+    }
+
+    /** Сдвигает курсор, переходит к следующему шарду и отмечает конец списка */
+    private void onPage(Page page) {
+        if (page.readCount < PAGE_SIZE) {
+            lastKey = null;
+            shard++;
+            endReached = shard >= roots.size();
+        } else {
+            lastKey = page.lastKey;
+        }
+    }
+
+    /**
+     * Загруженная страница: профили и данные курсора по всем прочитанным узлам,
+     * включая те, что не удалось преобразовать в профиль.
+     */
+    private static final class Page {
+        final List<UserEntry> users;
+        final int readCount;
+        final String lastKey;
+
+        Page(List<UserEntry> users, int readCount, String lastKey) {
+            this.users = users;
+            this.readCount = readCount;
+            this.lastKey = lastKey;
+        }
+    }
+}
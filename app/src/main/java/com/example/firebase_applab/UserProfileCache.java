@@ -0,0 +1,220 @@
+package com.example.firebase_applab;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * UserProfileCache — локальный кэш профилей пользователей (SQLite).
+ *
+ * Назначение:
+ * 1. Хранит последний известный профиль User для каждого uid, чтобы MainActivity
+ *    могла показать данные сразу, не дожидаясь ответа Firebase.
+ * 2. Ограничивает размер кэша: записи старше TTL удаляются, а при превышении
+ *    MAX_ENTRIES вытесняются профили, к которым дольше всего не обращались
+ *    (актуально для устройств с несколькими аккаунтами).
+ * 3. Считает попадания и промахи кэша.
+ *
+ * Все обращения к базе выполняются в отдельном потоке, результат
+ * возвращается в главный поток.
+ */
+public class UserProfileCache {
+
+    /** Время жизни записи в кэше */
+    private static final long TTL_MS = TimeUnit.DAYS.toMillis(30);
+
+    /** Максимальное количество профилей в кэше */
+    private static final int MAX_ENTRIES = 16;
+
+    private static final String DB_NAME = "user_profile_cache.db";
+    private static final int DB_VERSION = 3;
+
+    private static final String TABLE = "profiles";
+    private static final String COL_UID = "uid";
+    private static final String COL_NAME = "name";
+    private static final String COL_EMAIL = "email";
+    private static final String COL_REGISTERED_AT = "registered_at";
+    private static final String COL_REGISTRATION_DATE = "registration_date";
+    private static final String COL_SCHEMA_VERSION = "schema_version";
+    private static final String COL_UPDATED_AT = "updated_at";
+    private static final String COL_ACCESSED_AT = "accessed_at";
+
+    /** Единственный экземпляр кэша на процесс */
+    private static volatile UserProfileCache instance;
+
+    /** Помощник для открытия SQLite-базы */
+    private final SQLiteOpenHelper helper;
+
+    /** Поток для операций с диском */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Handler главного потока для доставки результатов */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** Счётчики попаданий и промахов */
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private UserProfileCache(Context context) {
+        helper = new SQLiteOpenHelper(context, DB_NAME, null, DB_VERSION) {
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+                db.execSQL("CREATE TABLE " + TABLE + " ("
+                        + COL_UID + " TEXT PRIMARY KEY, "
+                        + COL_NAME + " TEXT, "
+                        + COL_EMAIL + " TEXT, "
+                        + COL_REGISTERED_AT + " INTEGER, "
+                        + COL_REGISTRATION_DATE + " TEXT, "
+                        + COL_SCHEMA_VERSION + " INTEGER NOT NULL, "
+                        + COL_UPDATED_AT + " INTEGER NOT NULL, "
+                        + COL_ACCESSED_AT + " INTEGER NOT NULL)");
+            }
+
+            @Override
+            public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+                // Кэш можно безопасно пересоздать — данные восстановятся из Firebase
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+                onCreate(db);
+            }
+        };
+    }
+
+    /**
+     * Возвращает экземпляр кэша.
+     *
+     * @param context любой Context (используется ApplicationContext)
+     */
+    public static UserProfileCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UserProfileCache.class) {
+                if (instance == null) {
+                    instance = new UserProfileCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Асинхронно читает профиль из кэша.
+     *
+     * @param uid      идентификатор пользователя
+     * @param callback вызывается в главном потоке; получает null при промахе
+     */
+    public void get(String uid, Consumer<User> callback) {
+        executor.execute(() -> {
+            User user = read(uid);
+            mainHandler.post(() -> callback.accept(user));
+        });
+    }
+
+    /**
+     * Асинхронно сохраняет профиль в кэш и выполняет вытеснение старых записей.
+     *
+     * @param uid  идентификатор пользователя
+     * @param user профиль, полученный из Firebase
+     */
+    public void put(String uid, User user) {
+        executor.execute(() -> write(uid, user));
+    }
+
+    /**
+     * Асинхронно удаляет профиль из кэша (например, при выходе из аккаунта).
+     */
+    public void remove(String uid) {
+        executor.execute(() -> helper.getWritableDatabase()
+                .delete(TABLE, COL_UID + " = ?", new String[]{uid}));
+    }
+
+    /** Количество попаданий в кэш с момента запуска процесса */
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    /** Количество промахов кэша с момента запуска процесса */
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Читает запись из базы. Просроченные записи удаляются и считаются промахом.
+     */
+    private User read(String uid) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        try (Cursor cursor = db.query(TABLE,
+                new String[]{COL_NAME, COL_EMAIL, COL_REGISTERED_AT, COL_SCHEMA_VERSION, COL_UPDATED_AT,
+                        COL_REGISTRATION_DATE},
+                COL_UID + " = ?", new String[]{uid}, null, null, null)) {
+
+            if (!cursor.moveToFirst()) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            // Запись устарела — удаляем её
+            if (now - cursor.getLong(4) > TTL_MS) {
+                db.delete(TABLE, COL_UID + " = ?", new String[]{uid});
+                misses.incrementAndGet();
+                return null;
+            }
+
+            User user = new User(cursor.getString(0), cursor.getString(1));
+            user.setRegisteredAt(cursor.isNull(2) ? null : cursor.getLong(2));
+            user.setSchemaVersion(cursor.getInt(3));
+            // Дата регистрации схемы v1 — иначе профиль из кэша не равен профилю из базы
+            // и экран получает лишнее обновление
+            user.setRegistrationDate(cursor.getString(5));
+
+            // Отмечаем время последнего обращения для LRU-вытеснения
+            ContentValues accessed = new ContentValues();
+            accessed.put(COL_ACCESSED_AT, now);
+            db.update(TABLE, accessed, COL_UID + " = ?", new String[]{uid});
+
+            hits.incrementAndGet();
+            return user;
+        }
+    }
+
+    /**
+     * Записывает профиль и удаляет лишние записи:
+     * сначала просроченные, затем самые давно использованные сверх MAX_ENTRIES.
+     */
+    private void write(String uid, User user) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        ContentValues values = new ContentValues();
+        values.put(COL_UID, uid);
+        values.put(COL_NAME, user.getName());
+        values.put(COL_EMAIL, user.getEmail());
+        values.put(COL_REGISTERED_AT, user.getRegisteredAt());
+        values.put(COL_REGISTRATION_DATE, user.getRegistrationDate());
+        values.put(COL_SCHEMA_VERSION, user.getSchemaVersion());
+        values.put(COL_UPDATED_AT, now);
+        values.put(COL_ACCESSED_AT, now);
+
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.delete(TABLE, COL_UPDATED_AT + " < ?", new String[]{String.valueOf(now - TTL_MS)});
+            db.execSQL("DELETE FROM " + TABLE + " WHERE " + COL_UID + " NOT IN ("
+                    + "SELECT " + COL_UID + " FROM " + TABLE
+                    + " ORDER BY " + COL_ACCESSED_AT + " DESC LIMIT " + MAX_ENTRIES + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
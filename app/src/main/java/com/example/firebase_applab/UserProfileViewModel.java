@@ -0,0 +1,139 @@
+package com.example.firebase_applab;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.SavedStateHandle;
+
+/**
+ * UserProfileViewModel — состояние профиля для MainActivity.
+ *
+ * Назначение:
+ * 1. Переживает смену конфигурации (поворот экрана, тёмная тема, смена языка),
+ *    поэтому профиль не загружается из базы заново при каждом пересоздании Activity.
+ * 2. Не допускает повторных загрузок одного профиля: все экраны и пересозданные
+ *    Activity используют одну живую подписку ProfileLiveData.
+ * 3. Сохраняет последний профиль в SavedStateHandle — после завершения процесса
+ *    системой данные показываются сразу, до ответа базы.
+ * 4. Слушатель базы не ссылается на Activity, поэтому не удерживает
+ *    уничтоженные Activity в памяти.
+ */
+public class UserProfileViewModel extends AndroidViewModel {
+
+    private static final String TAG = "UserProfileViewModel";
+
+    // Ключи SavedStateHandle
+    private static final String KEY_UID = "uid";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_EMAIL = "email";
+    private static final String KEY_REGISTRATION_DATE = "registrationDate";
+    private static final String KEY_REGISTERED_AT = "registeredAt";
+    private static final String KEY_SCHEMA_VERSION = "schemaVersion";
+
+    /** Сохранённое состояние (переживает завершение процесса) */
+    private final SavedStateHandle state;
+
+    /** Локальный кэш профилей */
+    private final UserProfileCache profileCache;
+
+    /** Текущий профиль */
+    private final MediatorLiveData<User> profile = new MediatorLiveData<>();
+
+    /** Сообщение об ошибке загрузки (null — ошибки нет или она уже показана) */
+    private final MediatorLiveData<String> error = new MediatorLiveData<>();
+
+    /** Живая подписка на профиль (общая для всех экранов) */
+    private ProfileLiveData live;
+
+    /** uid, на профиль которого оформлена подписка */
+    private String subscribedUid;
+
+    public UserProfileViewModel(@NonNull Application application, @NonNull SavedStateHandle state) {
+        super(application);
+        this.state = state;
+        this.profileCache = UserProfileCache.getInstance(application);
+
+        // Восстанавливаем профиль после завершения процесса
+        String name = state.get(KEY_NAME);
+        String email = state.get(KEY_EMAIL);
+        if (name != null || email != null) {
+            User restored = new User(name, email);
+            restored.setRegistrationDate(state.get(KEY_REGISTRATION_DATE));
+            restored.setRegisteredAt(state.get(KEY_REGISTERED_AT));
+            Integer version = state.get(KEY_SCHEMA_VERSION);
+            restored.setSchemaVersion(version == null ? UserMapper.CURRENT_SCHEMA_VERSION : version);
+            profile.setValue(restored);
+        }
+    }
+
+    /** Профиль пользователя */
+    public LiveData<User> getProfile() {
+        return profile;
+    }
+
+    /** Ошибка загрузки профиля */
+    public LiveData<String> getError() {
+        return error;
+    }
+
+    /** Вызывается после показа ошибки, чтобы она не повторилась после поворота */
+    public void onErrorShown() {
+        error.setValue(null);
+    }
+
+    /**
+     * Загружает профиль: сначала из локального кэша, затем подписывается
+     * на "Users/{uid}" (ProfileLiveData). Подписка активна, пока экран
+     * находится между onStart и onStop. Повторные вызовы с тем же uid ничего не делают.
+     *
+     * @param uid идентификатор текущего пользователя
+     */
+    public void load(String uid) {
+        if (uid.equals(subscribedUid)) {
+            return;
+        }
+        // Сменился пользователь — отключаем прежнюю подписку
+        if (live != null) {
+            profile.removeSource(live);
+            error.removeSource(live.getError());
+        }
+        subscribedUid = uid;
+        state.set(KEY_UID, uid);
+
+        // Сначала показываем последний известный профиль из локального кэша
+        profileCache.get(uid, cached -> {
+            // Ответ из сети мог прийти раньше — тогда кэш уже не нужен
+            if (cached != null && profile.getValue() == null) {
+                publish(cached);
+            }
+            Log.d(TAG, "Кэш профилей: попаданий " + profileCache.getHitCount()
+                    + ", промахов " + profileCache.getMissCount());
+        });
+
+        live = ProfileLiveData.forUid(getApplication(), uid);
+        profile.addSource(live, user -> {
+            profileCache.put(uid, user);
+            publish(user);
+        });
+        error.addSource(live.getError(), error::setValue);
+    }
+
+    /**
+     * Публикует профиль, если он отличается от текущего, и сохраняет его в SavedStateHandle.
+     */
+    private void publish(User user) {
+        if (user.equals(profile.getValue())) {
+            return;
+        }
+        state.set(KEY_NAME, user.getName());
+        state.set(KEY_EMAIL, user.getEmail());
+        state.set(KEY_REGISTRATION_DATE, user.getRegistrationDate());
+        state.set(KEY_REGISTERED_AT, user.getRegisteredAt());
+        state.set(KEY_SCHEMA_VERSION, user.getSchemaVersion());
+        profile.setValue(user);
+    }
+}
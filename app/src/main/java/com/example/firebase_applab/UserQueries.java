@@ -0,0 +1,50 @@
+package com.example.firebase_applab;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.util.Calendar;
+
+/**
+ * UserQueries — запросы к узлу "Users" по времени регистрации (схема v2).
+ *
+ * Для эффективной работы в правилах базы должен быть объявлен индекс:
+ * "Users": { ".indexOn": ["registeredAt", "updatedAt"] }
+ * Профили v1 (без registeredAt) в результаты не попадают, пока их не переведёт
+ * ProfileSchemaMigrator.
+ * При нескольких шардах профилей запрос выполняется для корня каждого шарда
+ * (UserShards.getRoots()), а результаты объединяются.
+ */
+public final class UserQueries {
+
+    private UserQueries() {
+        // Утилитный класс
+    }
+
+    /**
+     * Пользователи, зарегистрированные в интервале [fromMs, toMs].
+     *
+     * @param root   корень базы данных
+     * @param fromMs начало интервала, мс
+     * @param toMs   конец интервала включительно, мс
+     */
+    public static Query registeredBetween(DatabaseReference root, long fromMs, long toMs) {
+        return root.child("Users")
+                .orderByChild(UserMapper.KEY_REGISTERED_AT)
+                .startAt(fromMs)
+                .endAt(toMs);
+    }
+
+    /**
+     * Пользователи, зарегистрированные на текущей неделе (по часовому поясу устройства).
+     */
+    public static Query registeredThisWeek(DatabaseReference root) {
+        Calendar weekStart = Calendar.getInstance();
+        weekStart.set(Calendar.DAY_OF_WEEK, weekStart.getFirstDayOfWeek());
+        weekStart.set(Calendar.HOUR_OF_DAY, 0);
+        weekStart.set(Calendar.MINUTE, 0);
+        weekStart.set(Calendar.SECOND, 0);
+        weekStart.set(Calendar.MILLISECOND, 0);
+        return registeredBetween(root, weekStart.getTimeInMillis(), System.currentTimeMillis());
+    }
+}
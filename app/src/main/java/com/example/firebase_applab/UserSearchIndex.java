@@ -0,0 +1,596 @@
+package com.example.firebase_applab;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * UserSearchIndex — поисковый индекс по началу имени и email пользователей.
+ *
+ * Назначение:
+ * 1. Отвечает на префиксные запросы ("ива", "ivan@ex") за микросекунды:
+ *    термы (слова имени, имя целиком и email) хранятся отсортированными,
+ *    поиск — двоичный поиск по первому подходящему терму.
+ * 2. Основная часть индекса хранится в файле и отображается в память
+ *    (MappedByteBuffer) — при запуске индекс не перестраивается и не читается в кучу.
+ * 3. Изменения (put/remove) попадают в небольшую дельту в памяти и сразу
+ *    учитываются в поиске; compact() сливает дельту с файлом в новый файл.
+ *
+ * Формат файла:
+ * заголовок (magic, версия, число термов, число пользователей, позиции таблиц смещений);
+ * записи термов [len][term][len][uid], отсортированные по (term, uid);
+ * записи пользователей [len][uid][fingerprint][len][name][len][email], отсортированные по uid;
+ * строки хранятся в UTF-8 и сортируются по беззнаковым байтам (см. UTF8_ORDER);
+ * таблицы смещений записей (int на запись).
+ *
+ * Класс не зависит от Android API. Методы потокобезопасны; compact() выполняет
+ * запись файла без блокировки, поэтому поиск во время слияния не останавливается.
+ */
+public class UserSearchIndex {
+
+    private static final int MAGIC = 0x55534958; // "USIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    /** Разделитель терма и uid в ключах дельты (меньше любого символа терма) */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Порядок строк в файле: беззнаковые байты UTF-8, то есть порядок кодовых точек.
+     * Отличается от String.compareTo для символов вне BMP (эмодзи, редкие иероглифы):
+     * в UTF-16 их суррогаты меньше символов U+E000–U+FFFF, а в UTF-8 — больше.
+     * Дельта и слияние в write() обязаны использовать тот же порядок, что и двоичный поиск по файлу.
+     */
+    static final Comparator<String> UTF8_ORDER = (a, b) -> {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return Character.codePointAt(a, i) - Character.codePointAt(b, i);
+            }
+        }
+        return a.length() - b.length();
+    };
+
+    /** Запись об удалении пользователя в дельте */
+    private static final Record REMOVED = new Record(null, null);
+
+    /** Файл индекса */
+    private final File file;
+
+    /** Отображённый в память файл (null — файла ещё нет) */
+    private ByteBuffer base;
+    private int baseTermCount;
+    private int baseUserCount;
+    private int termOffsetsPos;
+    private int userOffsetsPos;
+
+    /** Термы дельты: "term\0uid" */
+    private final TreeSet<String> deltaTerms = new TreeSet<>(UTF8_ORDER);
+
+    /** Пользователи дельты: uid → запись (REMOVED — удалён) */
+    private final Map<String, Record> deltaRecords = new HashMap<>();
+
+    /** Идёт compact(): снимок дельты записывается в новый файл */
+    private boolean compacting;
+
+    /** Вызывается после записи нового файла, до его подмены (для тестов) */
+    Runnable afterSnapshotWritten;
+
+    /**
+     * Открывает индекс. Если файл существует, он отображается в память.
+     *
+     * @param file файл индекса
+     */
+    public UserSearchIndex(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            map();
+        }
+    }
+
+    /**
+     * Нормализует строку для поиска: нижний регистр, без диакритики, ё → е,
+     * пробелы по краям удалены, внутренние пробелы схлопнуты.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && sb.length() > 0) {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Добавляет или обновляет пользователя. Если данные не изменились, ничего не делает.
+     */
+    public synchronized void put(String uid, String name, String email) {
+        Record record = new Record(name, email);
+        Record current = currentRecord(uid);
+        if (current != null && current.fingerprint == record.fingerprint
+                && Objects.equals(current.name, name) && Objects.equals(current.email, email)) {
+            return;
+        }
+        removeDeltaTerms(uid);
+        for (String term : termsOf(name, email)) {
+            deltaTerms.add(term + SEPARATOR + uid);
+        }
+        deltaRecords.put(uid, record);
+    }
+
+    /**
+     * Удаляет пользователя из индекса.
+     */
+    public synchronized void remove(String uid) {
+        removeDeltaTerms(uid);
+        // Во время слияния пользователь может оказаться в новом файле из снимка дельты —
+        // отметка об удалении нужна, даже если в текущем файле его нет
+        if (compacting || findBaseUser(uid) >= 0) {
+            deltaRecords.put(uid, REMOVED);
+        } else {
+            deltaRecords.remove(uid);
+        }
+    }
+
+    /**
+     * Ищет пользователей, у которых имя, слово имени или email начинается с запроса.
+     *
+     * @param query строка поиска в любом регистре
+     * @param limit максимальное количество результатов
+     * @return найденные пользователи (не больше limit)
+     */
+    public synchronized List<UserEntry> search(String query, int limit) {
+        String prefix = normalize(query);
+        List<UserEntry> results = new ArrayList<>(Math.min(limit, 64));
+        if (prefix.isEmpty()) {
+            return results;
+        }
+        Set<String> uids = new LinkedHashSet<>();
+
+        // Дельта: свежие изменения
+        NavigableSet<String> deltaHits = deltaTerms.tailSet(prefix, true);
+        for (String key : deltaHits) {
+            if (uids.size() >= limit || !key.startsWith(prefix)) {
+                break;
+            }
+            uids.add(key.substring(key.indexOf(SEPARATOR) + 1));
+        }
+
+        // Основной файл: пользователи из дельты уже учтены выше
+        if (base != null && uids.size() < limit) {
+            byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            for (int i = lowerBound(prefixBytes); i < baseTermCount && uids.size() < limit; i++) {
+                int offset = base.getInt(termOffsetsPos + i * 4);
+                if (!startsWith(offset, prefixBytes)) {
+                    break;
+                }
+                String uid = readString(offset + 2 + (base.getShort(offset) & 0xFFFF));
+                if (!deltaRecords.containsKey(uid)) {
+                    uids.add(uid);
+                }
+            }
+        }
+
+        for (String uid : uids) {
+            Record record = currentRecord(uid);
+            if (record != null) {
+                results.add(new UserEntry(uid, new User(record.name, record.email)));
+            }
+        }
+        return results;
+    }
+
+    /** Количество изменений, ещё не слитых в файл */
+    public synchronized int getDeltaSize() {
+        return deltaRecords.size();
+    }
+
+    /** Количество пользователей в файле индекса */
+    public synchronized int getBaseSize() {
+        return baseUserCount;
+    }
+
+    /**
+     * Сливает дельту с файлом: записывает новый файл и отображает его в память.
+     * Изменения, сделанные во время записи, остаются в дельте.
+     */
+    public void compact() throws IOException {
+        ByteBuffer oldBase;
+        int oldTermCount, oldUserCount, oldTermOffsets, oldUserOffsets;
+        TreeSet<String> terms;
+        TreeMap<String, Record> records;
+
+        // Снимок состояния под блокировкой
+        synchronized (this) {
+            if (deltaRecords.isEmpty()) {
+                return;
+            }
+            compacting = true;
+            oldBase = base == null ? null : base.duplicate();
+            oldTermCount = baseTermCount;
+            oldUserCount = baseUserCount;
+            oldTermOffsets = termOffsetsPos;
+            oldUserOffsets = userOffsetsPos;
+            terms = new TreeSet<>(deltaTerms);
+            records = new TreeMap<>(UTF8_ORDER);
+            records.putAll(deltaRecords);
+        }
+
+        try {
+            // Запись нового файла без блокировки
+            File tmp = new File(file.getPath() + ".tmp");
+            write(tmp, oldBase, oldTermCount, oldUserCount, oldTermOffsets, oldUserOffsets, terms, records);
+            if (afterSnapshotWritten != null) {
+                afterSnapshotWritten.run();
+            }
+
+            synchronized (this) {
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Не удалось заменить файл индекса " + file);
+                }
+                map();
+
+                // Удаляем из дельты то, что попало в файл и не менялось после снимка
+                for (Map.Entry<String, Record> entry : records.entrySet()) {
+                    String uid = entry.getKey();
+                    if (deltaRecords.get(uid) == entry.getValue()) {
+                        removeDeltaTerms(uid);
+                        deltaRecords.remove(uid);
+                    }
+                }
+                // Отметки об удалении тех, кого нет и в новом файле, больше не нужны
+                Iterator<Map.Entry<String, Record>> it = deltaRecords.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Record> entry = it.next();
+                    if (entry.getValue() == REMOVED && findBaseUser(entry.getKey()) < 0) {
+                        it.remove();
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    // ----- Термы -----
+
+    /**
+     * Термы пользователя: каждое слово имени, имя целиком (если слов больше одного) и email.
+     */
+    static Set<String> termsOf(String name, String email) {
+        Set<String> terms = new LinkedHashSet<>();
+        String normalizedName = normalize(name);
+        if (!normalizedName.isEmpty()) {
+            terms.addAll(Arrays.asList(normalizedName.split(" ")));
+            terms.add(normalizedName);
+        }
+        String normalizedEmail = normalize(email);
+        if (!normalizedEmail.isEmpty()) {
+            terms.add(normalizedEmail);
+        }
+        return terms;
+    }
+
+    private void removeDeltaTerms(String uid) {
+        Record old = deltaRecords.get(uid);
+        if (old != null && old != REMOVED) {
+            for (String term : termsOf(old.name, old.email)) {
+                deltaTerms.remove(term + SEPARATOR + uid);
+            }
+        }
+    }
+
+    /** Текущая запись пользователя: из дельты или из файла (null — нет или удалён) */
+    private Record currentRecord(String uid) {
+        Record delta = deltaRecords.get(uid);
+        if (delta != null) {
+            return delta == REMOVED ? null : delta;
+        }
+        int index = findBaseUser(uid);
+        return index < 0 ? null : readBaseRecord(index);
+    }
+
+    // ----- Чтение файла -----
+
+    private void map() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Файл индекса повреждён: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Неизвестный формат файла индекса " + file);
+            }
+            base = buffer;
+            baseTermCount = buffer.getInt(8);
+            baseUserCount = buffer.getInt(12);
+            termOffsetsPos = buffer.getInt(16);
+            userOffsetsPos = buffer.getInt(20);
+        }
+    }
+
+    /** Первый терм, не меньший префикса */
+    private int lowerBound(byte[] prefix) {
+        int lo = 0, hi = baseTermCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareString(base, base.getInt(termOffsetsPos + mid * 4), prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Номер пользователя в файле или -1 */
+    private int findBaseUser(String uid) {
+        if (base == null) {
+            return -1;
+        }
+        byte[] key = uid.getBytes(StandardCharsets.UTF_8);
+        int lo = 0, hi = baseUserCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareString(base, base.getInt(userOffsetsPos + mid * 4), key);
+            if (cmp == 0) {
+                return mid;
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private Record readBaseRecord(int index) {
+        int offset = base.getInt(userOffsetsPos + index * 4);
+        offset += 2 + (base.getShort(offset) & 0xFFFF); // uid
+        offset += 4;                                    // fingerprint
+        String name = readString(offset);
+        offset += 2 + (base.getShort(offset) & 0xFFFF);
+        String email = readString(offset);
+        return new Record(name, email);
+    }
+
+    /** Совпадает ли начало строки по смещению с префиксом */
+    private boolean startsWith(int offset, byte[] prefix) {
+        int length = base.getShort(offset) & 0xFFFF;
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (base.get(offset + 2 + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString(int offset) {
+        int length = base.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = base.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Сравнение строки по смещению с байтами key (беззнаковое, лексикографическое) */
+    private static int compareString(ByteBuffer buffer, int offset, byte[] key) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(offset + 2 + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ----- Запись файла -----
+
+    /**
+     * Записывает новый файл, сливая отсортированные записи старого файла
+     * с отсортированной дельтой (без загрузки старого файла в память).
+     */
+    private static void write(File target, ByteBuffer oldBase, int oldTermCount, int oldUserCount,
+                              int oldTermOffsets, int oldUserOffsets,
+                              TreeSet<String> terms, TreeMap<String, Record> records) throws IOException {
+        IntList termOffsets = new IntList(oldTermCount + terms.size());
+        IntList userOffsets = new IntList(oldUserCount + records.size());
+
+        try (FileOutputStream fos = new FileOutputStream(target);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.write(new byte[HEADER_SIZE]);
+
+            // Термы: слияние старого файла (кроме пользователей из дельты) и дельты
+            Iterator<String> delta = terms.iterator();
+            String nextDelta = delta.hasNext() ? delta.next() : null;
+            for (int i = 0; i < oldTermCount; i++) {
+                int offset = oldBase.getInt(oldTermOffsets + i * 4);
+                String term = readString(oldBase, offset);
+                String uid = readString(oldBase, offset + 2 + (oldBase.getShort(offset) & 0xFFFF));
+                if (records.containsKey(uid)) {
+                    continue;
+                }
+                String key = term + SEPARATOR + uid;
+                while (nextDelta != null && UTF8_ORDER.compare(nextDelta, key) < 0) {
+                    writeTerm(out, termOffsets, nextDelta);
+                    nextDelta = delta.hasNext() ? delta.next() : null;
+                }
+                termOffsets.add(out.size());
+                writeString(out, term);
+                writeString(out, uid);
+            }
+            while (nextDelta != null) {
+                writeTerm(out, termOffsets, nextDelta);
+                nextDelta = delta.hasNext() ? delta.next() : null;
+            }
+
+            // Пользователи: слияние по uid
+            Iterator<Map.Entry<String, Record>> deltaUsers = records.entrySet().iterator();
+            Map.Entry<String, Record> nextUser = deltaUsers.hasNext() ? deltaUsers.next() : null;
+            for (int i = 0; i < oldUserCount; i++) {
+                int offset = oldBase.getInt(oldUserOffsets + i * 4);
+                String uid = readString(oldBase, offset);
+                while (nextUser != null && UTF8_ORDER.compare(nextUser.getKey(), uid) < 0) {
+                    writeUser(out, userOffsets, nextUser.getKey(), nextUser.getValue());
+                    nextUser = deltaUsers.hasNext() ? deltaUsers.next() : null;
+                }
+                if (records.containsKey(uid)) {
+                    continue; // Новая версия записи будет записана из дельты
+                }
+                int fieldsOffset = offset + 2 + (oldBase.getShort(offset) & 0xFFFF) + 4;
+                String name = readString(oldBase, fieldsOffset);
+                String email = readString(oldBase, fieldsOffset + 2 + (oldBase.getShort(fieldsOffset) & 0xFFFF));
+                writeUser(out, userOffsets, uid, new Record(name, email));
+            }
+            while (nextUser != null) {
+                writeUser(out, userOffsets, nextUser.getKey(), nextUser.getValue());
+                nextUser = deltaUsers.hasNext() ? deltaUsers.next() : null;
+            }
+
+            // Таблицы смещений
+            int termTablePos = out.size();
+            for (int i = 0; i < termOffsets.size(); i++) {
+                out.writeInt(termOffsets.get(i));
+            }
+            int userTablePos = out.size();
+            for (int i = 0; i < userOffsets.size(); i++) {
+                out.writeInt(userOffsets.get(i));
+            }
+            out.flush();
+
+            // Заголовок
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(termOffsets.size()).putInt(userOffsets.size())
+                    .putInt(termTablePos).putInt(userTablePos);
+            header.flip();
+            fos.getChannel().write(header, 0);
+            fos.getFD().sync();
+        }
+    }
+
+    private static void writeTerm(DataOutputStream out, IntList offsets, String key) throws IOException {
+        int separator = key.indexOf(SEPARATOR);
+        offsets.add(out.size());
+        writeString(out, key.substring(0, separator));
+        writeString(out, key.substring(separator + 1));
+    }
+
+    private static void writeUser(DataOutputStream out, IntList offsets, String uid, Record record)
+            throws IOException {
+        if (record == REMOVED) {
+            return;
+        }
+        offsets.add(out.size());
+        writeString(out, uid);
+        out.writeInt(record.fingerprint);
+        writeString(out, record.name == null ? "" : record.name);
+        writeString(out, record.email == null ? "" : record.email);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Данные пользователя в индексе.
+     */
+    private static final class Record {
+        final String name;
+        final String email;
+        final int fingerprint;
+
+        Record(String name, String email) {
+            this.name = name;
+            this.email = email;
+            this.fingerprint = Objects.hash(name, email);
+        }
+    }
+
+    /**
+     * Растущий массив int без упаковки в Integer.
+     */
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            values = new int[Math.max(capacity, 16)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * UserSearchSync — поддерживает UserSearchIndex в актуальном состоянии.
+ *
+ * Назначение:
+ * 1. При первом запуске (индекс пуст) строит индекс постраничным чтением узла "Users"
+ *    каждого шарда профилей (orderByKey, порциями по BATCH_SIZE).
+ * 2. Дальше читает только изменившиеся профили: пока открыт справочник, слушает
+ *    запрос orderByChild("updatedAt").startAt(отметка) и переносит изменения в индекс
+ *    по одному. Отметка — наибольшее updatedAt, уже сохранённое в файле индекса;
+ *    хранится отдельно для каждого шарда в SharedPreferences.
+ * 3. Когда дельта индекса вырастает до COMPACT_THRESHOLD записей или слушатель
+ *    отключается, сливает её с файлом индекса в фоновом потоке и после этого
+ *    сдвигает отметку.
+ *
+ * Объём чтения зависит от количества изменений с прошлого запуска, а не от числа
+ * пользователей. Для запроса в правилах базы нужен индекс "updatedAt" (см. UserQueries).
+ * Профили, удалённые, пока справочник был закрыт, остаются в индексе до его перестроения.
+ */
+public class UserSearchSync {
+
+    private static final String TAG = "UserSearchSync";
+
+    /** Файл индекса во внутреннем хранилище */
+    private static final String FILE_NAME = "user_search.idx";
+
+    /** Файл SharedPreferences с отметками; ключ — URL корня шарда */
+    private static final String PREFS_NAME = "user_search_sync";
+
+    /** Размер дельты, после которого она сливается с файлом */
+    private static final int COMPACT_THRESHOLD = 5_000;
+
+    /** Количество профилей, читаемых за один шаг при построении индекса */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Запас к отметке: updatedAt назначает сервер, и запись, сделанная во время
+     * построения индекса, может получить время чуть меньше уже прочитанного максимума.
+     * Повторно прочитанные профили индекс пропускает.
+     */
+    private static final long HIGH_WATER_MARGIN_MS = 60_000;
+
+    /** Единственный экземпляр на процесс */
+    private static volatile UserSearchSync instance;
+
+    /** Поисковый индекс */
+    private final UserSearchIndex index;
+
+    /** Отметки, уже сохранённые в файле индекса */
+    private final SharedPreferences prefs;
+
+    /** Поток для слияния индекса */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Подключённые слушатели (null — не подключены) */
+    private List<Subscription> subscriptions;
+
+    /** Наибольшее прочитанное updatedAt по шардам (ещё не обязательно сохранённое) */
+    private final Map<String, Long> highWater = new HashMap<>();
+
+    /** Запущено ли слияние */
+    private boolean compacting;
+
+    private UserSearchSync(Context context) {
+        index = openIndex(new File(context.getFilesDir(), FILE_NAME));
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Возвращает экземпляр синхронизации.
+     *
+     * @param context любой Context (используется ApplicationContext)
+     */
+    public static UserSearchSync getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UserSearchSync.class) {
+                if (instance == null) {
+                    instance = new UserSearchSync(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Поисковый индекс */
+    public UserSearchIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Подключает синхронизацию узла "Users" каждой из баз. Повторный вызов ничего не делает.
+     * Вызывается из главного потока.
+     *
+     * @param roots корни баз шардов профилей (UserShards.getRoots())
+     */
+    public void attach(List<DatabaseReference> roots) {
+        if (subscriptions != null) {
+            return;
+        }
+        subscriptions = new ArrayList<>(roots.size());
+        // Пустой индекс (первый запуск или повреждённый файл) строится заново
+        boolean rebuild = index.getBaseSize() == 0 && index.getDeltaSize() == 0;
+        for (DatabaseReference root : roots) {
+            Subscription subscription = new Subscription(root);
+            subscriptions.add(subscription);
+            String key = root.toString();
+            if (rebuild || !prefs.contains(key)) {
+                subscription.rebuild(null);
+            } else {
+                subscription.listen(prefs.getLong(key, 0));
+            }
+        }
+    }
+
+    /**
+     * Отключает слушатели и сохраняет накопленные изменения в файл.
+     */
+    public void detach() {
+        if (subscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions = null;
+        compactAsync();
+    }
+
+    /**
+     * Переносит профиль в индекс и сдвигает отметку шарда.
+     */
+    private void onProfile(String rootKey, DataSnapshot snapshot) {
+        Object updatedAt = snapshot.child(UserMapper.KEY_UPDATED_AT).getValue();
+        if (updatedAt instanceof Number) {
+            long time = ((Number) updatedAt).longValue();
+            Long known = highWater.get(rootKey);
+            if (known == null || time > known) {
+                highWater.put(rootKey, time);
+            }
+        }
+        User user = UserMapper.fromSnapshot(snapshot);
+        if (user == null) {
+            return;
+        }
+        index.put(snapshot.getKey(), user.getName(), user.getEmail());
+        if (index.getDeltaSize() >= COMPACT_THRESHOLD) {
+            compactAsync();
+        }
+    }
+
+    /**
+     * Синхронизация одного шарда: построение индекса и слушатель изменений.
+     */
+    private final class Subscription implements ChildEventListener {
+
+        /** Узел "Users" шарда */
+        private final DatabaseReference users;
+
+        /** Ключ отметки (URL корня шарда) */
+        private final String rootKey;
+
+        /** Запрос, к которому подключён слушатель (null — не подключён) */
+        private Query query;
+
+        /** Синхронизация отключена */
+        private boolean cancelled;
+
+        Subscription(DatabaseReference root) {
+            users = root.child(UserShards.USERS);
+            rootKey = root.toString();
+        }
+
+        /**
+         * Читает следующую порцию профилей после ключа lastKey; после последней
+         * порции подключает слушатель изменений.
+         */
+        void rebuild(String lastKey) {
+            Query page = users.orderByKey();
+            if (lastKey != null) {
+                page = page.startAfter(lastKey);
+            }
+            FirebaseMetrics.track("db.searchIndexPage", page.limitToFirst(BATCH_SIZE).get())
+                    .addOnCompleteListener(task -> {
+                        if (cancelled) {
+                            return;
+                        }
+                        if (!task.isSuccessful()) {
+                            Log.w(TAG, "Не удалось построить индекс", task.getException());
+                            return;
+                        }
+                        String last = null;
+                        for (DataSnapshot child : task.getResult().getChildren()) {
+                            last = child.getKey();
+                            onProfile(rootKey, child);
+                        }
+                        if (last != null && task.getResult().getChildrenCount() >= BATCH_SIZE) {
+                            rebuild(last);
+                        } else {
+                            // Профилей с updatedAt нет — отметка всё равно нужна, чтобы не строить заново
+                            if (!highWater.containsKey(rootKey)) {
+                                highWater.put(rootKey, 0L);
+                            }
+                            listen(highWater.get(rootKey));
+                        }
+                    });
+        }
+
+        /**
+         * Подключает слушатель профилей, изменившихся после отметки.
+         */
+        void listen(long since) {
+            if (cancelled) {
+                return;
+            }
+            query = users.orderByChild(UserMapper.KEY_UPDATED_AT).startAt(since - HIGH_WATER_MARGIN_MS);
+            query.addChildEventListener(this);
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (query != null) {
+                query.removeEventListener(this);
+                query = null;
+            }
+        }
+
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onProfile(rootKey, snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onProfile(rootKey, snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            // updatedAt только растёт, поэтому профиль покидает запрос только при удалении
+            index.remove(snapshot.getKey());
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            // Порядок узлов для индекса не важен
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Синхронизация индекса остановлена: " + error.getMessage());
+            query = null;
+        }
+    }
+
+    /**
+     * Сливает дельту с файлом в фоновом потоке (не более одного слияния одновременно).
+     */
+    private synchronized void compactAsync() {
+        if (compacting) {
+            return;
+        }
+        // Отметки, которые окажутся в файле после этого слияния
+        Map<String, Long> written = new HashMap<>(highWater);
+        if (index.getDeltaSize() == 0) {
+            saveHighWater(written);
+            return;
+        }
+        compacting = true;
+        executor.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                index.compact();
+                saveHighWater(written);
+                FirebaseMetrics.recordLatency("searchIndex.compact", System.currentTimeMillis() - start);
+                FirebaseMetrics.recordValue("searchIndex.size", index.getBaseSize());
+            } catch (IOException e) {
+                Log.w(TAG, "Не удалось сохранить индекс", e);
+            } finally {
+                synchronized (UserSearchSync.this) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    private void saveHighWater(Map<String, Long> marks) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            editor.putLong(mark.getKey(), mark.getValue());
+        }
+        editor.apply();
+    }
+
+    /**
+     * Открывает файл индекса. Повреждённый файл удаляется — индекс
+     * заполнится заново из Firebase.
+     */
+    private static UserSearchIndex openIndex(File file) {
+        try {
+            return new UserSearchIndex(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Файл индекса повреждён, индекс будет построен заново", e);
+            if (!file.delete()) {
+                Log.w(TAG, "Не удалось удалить " + file);
+            }
+            try {
+                return new UserSearchIndex(file);
+            } catch (IOException again) {
+                throw new IllegalStateException(again);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.firebase_applab;
+
+import android.content.Context;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UserShards — размещение профилей "Users/{uid}" по нескольким экземплярам базы данных.
+ *
+ * Назначение:
+ * 1. Находит базу данных пользователя через ShardRouter (согласованное хеширование uid)
+ *    по списку URL из res/values/config.xml (user_shard_urls). Пустой список —
+ *    один шард, основная база.
+ * 2. Разбирает multi-path обновление от корня на части по базам (updateChildren):
+ *    пути "Users/{uid}/..." уходят в шард пользователя, остальные (индекс
+ *    UsersByEmail и др.) — в основную базу.
+ * 3. Считает обращения к каждому шарду в FirebaseMetrics ("db.shard{N}.*"),
+ *    чтобы было видно распределение нагрузки.
+ * 4. Пока профили не перенесены (ShardRebalancer), читает профиль, которого нет
+ *    в его шарде, из прежнего места хранения: шарда по прежнему списку
+ *    (user_shard_previous_urls) или, если прежний список пуст, из основной базы.
+ *
+ * Если все пути попадают в одну базу, обновление остаётся атомарным. Иначе сначала
+ * записываются профили, затем остальное: индекс не указывает на ещё не записанный профиль.
+ */
+public final class UserShards {
+
+    /** Узел профилей в каждом шарде */
+    public static final String USERS = "Users";
+
+    /** Единственный экземпляр на процесс */
+    private static volatile UserShards instance;
+
+    /** Корень основной базы */
+    private final DatabaseReference primary;
+
+    /** Выбор шарда по uid */
+    private final ShardRouter router;
+
+    /** Корни баз шардов в порядке router.getShards() */
+    private final List<DatabaseReference> roots;
+
+    /** Выбор шарда по прежнему списку (null — список шардов не менялся) */
+    private final ShardRouter previousRouter;
+
+    /** Корни баз прежних шардов в порядке previousRouter.getShards() */
+    private final List<DatabaseReference> previousRoots;
+
+    UserShards(DatabaseReference primary, ShardRouter router, List<DatabaseReference> roots) {
+        this(primary, router, roots, null, Collections.emptyList());
+    }
+
+    UserShards(DatabaseReference primary, ShardRouter router, List<DatabaseReference> roots,
+               ShardRouter previousRouter, List<DatabaseReference> previousRoots) {
+        this.primary = primary;
+        this.router = router;
+        this.roots = Collections.unmodifiableList(new ArrayList<>(roots));
+        this.previousRouter = previousRouter;
+        this.previousRoots = Collections.unmodifiableList(new ArrayList<>(previousRoots));
+    }
+
+    /**
+     * Возвращает шарды, настроенные в ресурсах приложения.
+     *
+     * @param context любой Context
+     */
+    public static UserShards getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UserShards.class) {
+                if (instance == null) {
+                    DatabaseReference primary = FirebaseSetup.getRoot(context);
+                    List<String> urls = Arrays.asList(
+                            context.getResources().getStringArray(R.array.user_shard_urls));
+                    List<String> previousUrls = Arrays.asList(
+                            context.getResources().getStringArray(R.array.user_shard_previous_urls));
+                    List<DatabaseReference> roots = rootsFor(context, primary, urls);
+                    List<DatabaseReference> previousRoots = rootsFor(context, primary, previousUrls);
+                    if (urls.isEmpty()) {
+                        urls = Collections.singletonList(primary.toString());
+                    }
+                    if (previousUrls.isEmpty()) {
+                        previousUrls = Collections.singletonList(primary.toString());
+                    }
+                    // Прежняя раскладка совпадает с текущей — читать больше неоткуда
+                    ShardRouter previousRouter = previousUrls.equals(urls) ? null : new ShardRouter(previousUrls);
+                    instance = new UserShards(primary, new ShardRouter(urls), roots, previousRouter, previousRoots);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Корни баз по списку URL; пустой список — одна основная база.
+     */
+    private static List<DatabaseReference> rootsFor(Context context, DatabaseReference primary, List<String> urls) {
+        List<DatabaseReference> roots = new ArrayList<>(Math.max(urls.size(), 1));
+        for (String url : urls) {
+            roots.add(FirebaseSetup.getDatabase(context, url).getReference());
+        }
+        if (roots.isEmpty()) {
+            roots.add(primary);
+        }
+        return roots;
+    }
+
+    /** Выбор шарда по uid */
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    /** Корень основной базы (индекс UsersByEmail, статусы и прочие общие узлы) */
+    public DatabaseReference getPrimaryRoot() {
+        return primary;
+    }
+
+    /** Корни баз всех шардов */
+    public List<DatabaseReference> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Все базы, в которых могут лежать профили: текущие шарды (в порядке getRoots()),
+     * затем основная база и прежние шарды, если их нет среди текущих.
+     * Это источники для ShardRebalancer.
+     */
+    public List<DatabaseReference> getSources() {
+        List<DatabaseReference> sources = new ArrayList<>(roots);
+        List<DatabaseReference> candidates = new ArrayList<>(previousRoots.size() + 1);
+        candidates.add(primary);
+        candidates.addAll(previousRoots);
+        for (DatabaseReference candidate : candidates) {
+            boolean known = false;
+            for (DatabaseReference source : sources) {
+                known |= source.toString().equals(candidate.toString());
+            }
+            if (!known) {
+                sources.add(candidate);
+            }
+        }
+        return sources;
+    }
+
+    /** Корень базы шарда, в котором хранится профиль пользователя */
+    public DatabaseReference rootFor(String uid) {
+        return roots.get(router.shardFor(uid));
+    }
+
+    /**
+     * Узел профиля "Users/{uid}" в шарде пользователя.
+     */
+    public DatabaseReference userRef(String uid) {
+        int shard = router.shardFor(uid);
+        FirebaseMetrics.increment("db.shard" + shard + ".userRef");
+        return roots.get(shard).child(USERS).child(uid);
+    }
+
+    /**
+     * Узел профиля в прежнем месте хранения, если оно отличается от текущего шарда.
+     *
+     * @return "Users/{uid}" в прежнем шарде или null, если профиль не переезжал
+     */
+    public DatabaseReference previousUserRef(String uid) {
+        if (previousRouter == null) {
+            return null;
+        }
+        DatabaseReference previous = previousRoots.get(previousRouter.shardFor(uid));
+        if (previous.toString().equals(rootFor(uid).toString())) {
+            return null;
+        }
+        return previous.child(USERS).child(uid);
+    }
+
+    /**
+     * Читает профиль из шарда пользователя, а если его там ещё нет —
+     * из прежнего места хранения (см. previousUserRef()).
+     */
+    public Task<DataSnapshot> getUser(String uid) {
+        return userRef(uid).get().continueWithTask(task -> {
+            DatabaseReference previous = previousUserRef(uid);
+            if (!task.isSuccessful() || task.getResult().exists() || previous == null) {
+                return task;
+            }
+            return FirebaseMetrics.track("db.shardFallback", previous.get());
+        });
+    }
+
+    /**
+     * Применяет multi-path обновление, пути которого заданы от корня основной базы.
+     * Пути профилей ("Users/{uid}" и вложенные) записываются в шарды пользователей.
+     *
+     * @param updates карта "путь → значение"
+     * @return задача, завершающаяся после записи всех частей
+     */
+    public Task<Void> updateChildren(Map<String, Object> updates) {
+        // Части обновления по базам; пути профилей — отдельно от остальных
+        Map<FirebaseDatabase, Map<String, Object>> users = new LinkedHashMap<>();
+        Map<FirebaseDatabase, Integer> shardOf = new HashMap<>();
+        Map<String, Object> other = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            String uid = uidOf(entry.getKey());
+            if (uid == null) {
+                other.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            int shard = router.shardFor(uid);
+            FirebaseDatabase database = roots.get(shard).getDatabase();
+            Map<String, Object> part = users.get(database);
+            if (part == null) {
+                part = new HashMap<>();
+                users.put(database, part);
+                shardOf.put(database, shard);
+            }
+            part.put(entry.getKey(), entry.getValue());
+        }
+
+        // Всё в одной базе — одна атомарная запись
+        if (users.isEmpty() || (users.size() == 1 && (other.isEmpty()
+                || users.containsKey(primary.getDatabase())))) {
+            FirebaseDatabase target = users.isEmpty() ? primary.getDatabase() : users.keySet().iterator().next();
+            String operation = users.isEmpty() ? "db.primary.write" : "db.shard" + shardOf.get(target) + ".write";
+            return FirebaseMetrics.track(operation, PendingWrites.track(target.getReference().updateChildren(updates)));
+        }
+
+        List<Task<Void>> writes = new ArrayList<>(users.size());
+        for (Map.Entry<FirebaseDatabase, Map<String, Object>> part : users.entrySet()) {
+            writes.add(FirebaseMetrics.track("db.shard" + shardOf.get(part.getKey()) + ".write",
+                    PendingWrites.track(part.getKey().getReference().updateChildren(part.getValue()))));
+        }
+        Task<Void> profiles = Tasks.whenAll(writes);
+        if (other.isEmpty()) {
+            return profiles;
+        }
+        return profiles.continueWithTask(done -> {
+            if (!done.isSuccessful()) {
+                return done;
+            }
+            return FirebaseMetrics.track("db.primary.write", PendingWrites.track(primary.updateChildren(other)));
+        });
+    }
+
+    /**
+     * uid из пути "Users/{uid}" или "Users/{uid}/поле"; null для других узлов.
+     */
+    static String uidOf(String path) {
+        String prefix = USERS + "/";
+        if (!path.startsWith(prefix) || path.length() == prefix.length()) {
+            return null;
+        }
+        int end = path.indexOf('/', prefix.length());
+        return end < 0 ? path.substring(prefix.length()) : path.substring(prefix.length(), end);
+    }
+}
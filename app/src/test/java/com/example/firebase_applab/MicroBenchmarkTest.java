@@ -0,0 +1,214 @@
+package com.example.firebase_applab;
+
+import com.google.firebase.database.core.utilities.encoding.CustomClassMapper;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Микробенчмарки JVM-частей приложения: преобразование User, проверка формы
+ * регистрации, форматирование даты регистрации и поиск по UserSearchIndex
+ * на 10 тыс., 100 тыс. и 1 млн пользователей.
+ *
+ * Для каждого замера сначала выполняется прогрев, затем измеряется среднее время
+ * одного вызова. Для преобразования User отдельно замеряется первый («холодный») вызов.
+ * Результаты сохраняются в app/build/benchmark-results/jvm-microbench.json,
+ * чтобы их можно было сравнивать между коммитами.
+ *
+ * Замеры долгие, поэтому при обычном запуске unit-тестов пропускаются.
+ * Запуск: ./gradlew :app:testDebugUnitTest --tests "*MicroBenchmarkTest" -PrunBenchmarks=true
+ */
+public class MicroBenchmarkTest {
+
+    /** Замеры включены (системное свойство runBenchmarks, передаётся из Gradle) */
+    private static final boolean ENABLED = Boolean.getBoolean("runBenchmarks");
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    /** Размеры поискового индекса для замеров */
+    private static final int[] SEARCH_INDEX_SIZES = {10_000, 100_000, 1_000_000};
+
+    /** Через сколько добавлений индекс сливается с файлом при построении */
+    private static final int SEARCH_INDEX_BATCH = 100_000;
+
+    /** Результаты: имя замера → наносекунд на вызов (для *.fileBytes — размер файла в байтах) */
+    private static final Map<String, Double> results = new LinkedHashMap<>();
+
+    /** Приёмник результатов, чтобы JIT не удалил замеряемый код */
+    private static volatile Object sink;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Профиль схемы v2 в том виде, в каком его возвращает DataSnapshot.getValue() */
+    private static Map<String, Object> sampleMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", "Иван");
+        map.put("email", "ivan@example.com");
+        map.put("registeredAt", 1792195200000L);
+        map.put("schemaVersion", 2L);
+        return map;
+    }
+
+    /** Профиль схемы v1 с датой регистрации строкой */
+    private static Map<String, Object> sampleMapV1() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", "Иван");
+        map.put("email", "ivan@example.com");
+        map.put("registrationDate", "17-10-2026");
+        return map;
+    }
+
+    @Test
+    public void userMapping_coldAndWarm() {
+        assumeBenchmarksEnabled();
+        Map<String, Object> map = sampleMap();
+
+        // Холодные вызовы: первый разбор класса User каждым из способов
+        results.put("mapper.reflective.read.cold", timeOnce(() -> CustomClassMapper.convertToCustomClass(map, User.class)));
+        results.put("mapper.codec.read.cold", timeOnce(() -> UserMapper.fromMap(map)));
+
+        User user = UserMapper.fromMap(map);
+        assertEquals(CustomClassMapper.convertToCustomClass(map, User.class), user);
+
+        results.put("mapper.reflective.read.warm", measure(() -> CustomClassMapper.convertToCustomClass(map, User.class)));
+        results.put("mapper.codec.read.warm", measure(() -> UserMapper.fromMap(map)));
+        results.put("mapper.reflective.write.warm", measure(() -> CustomClassMapper.convertToPlainJavaTypes(user)));
+        results.put("mapper.codec.write.warm", measure(() -> UserMapper.toMap(user)));
+
+        Map<String, Object> v1 = sampleMapV1();
+        results.put("mapper.codec.read.v1.warm", measure(() -> UserMapper.fromMap(v1)));
+    }
+
+    @Test
+    public void registrationValidation() {
+        assumeBenchmarksEnabled();
+        assertNull(RegistrationValidator.validate("Иван", "ivan@example.com", "secret1"));
+
+        results.put("validation.valid", measure(() -> RegistrationValidator.validate("Иван", "ivan@example.com", "secret1")));
+        results.put("validation.shortPassword", measure(() -> RegistrationValidator.validate("Иван", "ivan@example.com", "123")));
+        results.put("validation.malformedEmail", measure(() -> RegistrationValidator.validate("Иван", "ivan@example", "secret1")));
+
+        RegistrationValidator.PasswordPolicy strict = new RegistrationValidator.PasswordPolicy(8, true, true);
+        results.put("validation.strictPolicy", measure(() -> RegistrationValidator.validate("Иван", "ivan@example.com", "secret12", strict)));
+    }
+
+    @Test
+    public void registrationDateFormatting() {
+        assumeBenchmarksEnabled();
+        Date now = new Date();
+        SimpleDateFormat shared = new SimpleDateFormat("dd-MM-yyyy", Locale.getDefault());
+
+        results.put("date.format.newFormatter", measure(() -> new SimpleDateFormat("dd-MM-yyyy", Locale.getDefault()).format(now)));
+        results.put("date.format.sharedFormatter", measure(() -> shared.format(now)));
+    }
+
+    @Test
+    public void searchIndexPrefixQueries() throws IOException {
+        // Построение индексов до 1 млн записей занимает минуты и сотни МБ на диске
+        assumeBenchmarksEnabled();
+        for (int size : SEARCH_INDEX_SIZES) {
+            String label = "searchIndex." + (size >= 1_000_000 ? size / 1_000_000 + "m" : size / 1_000 + "k");
+            File file = folder.newFile(label + ".idx");
+            assertTrue(file.delete());
+
+            long start = System.nanoTime();
+            UserSearchIndex index = new UserSearchIndex(file);
+            for (int i = 0; i < size; i++) {
+                index.put("uid" + i, "Пользователь" + (i * 7919L % size) + " Тест" + i, "user" + i + "@example.com");
+                if ((i + 1) % SEARCH_INDEX_BATCH == 0) {
+                    index.compact();
+                }
+            }
+            index.compact();
+            results.put(label + ".build", (double) (System.nanoTime() - start));
+            results.put(label + ".fileBytes", (double) file.length());
+
+            // Открытие готового файла: отображение в память без чтения в кучу
+            results.put(label + ".open", timeOnce(() -> {
+                try {
+                    return new UserSearchIndex(file);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+
+            assertFalse(index.search("user12", 20).isEmpty());
+            results.put(label + ".query.narrow", measure(() -> index.search("user12345", 20)));
+            results.put(label + ".query.wide", measure(() -> index.search("польз", 20)));
+            results.put(label + ".query.miss", measure(() -> index.search("zzz", 20)));
+
+            // Файл больше не нужен — не держим на диске все размеры сразу
+            assertTrue(file.delete());
+        }
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        if (results.isEmpty()) {
+            return;
+        }
+        File dir = new File("build/benchmark-results");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Не удалось создать " + dir);
+        }
+        StringBuilder json = new StringBuilder("{\n");
+        int i = 0;
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            json.append("  \"").append(entry.getKey()).append("\": ")
+                    .append(String.format(Locale.ROOT, "%.1f", entry.getValue()))
+                    .append(++i < results.size() ? ",\n" : "\n");
+        }
+        json.append("}\n");
+        try (FileWriter writer = new FileWriter(new File(dir, "jvm-microbench.json"))) {
+            writer.write(json.toString());
+        }
+    }
+
+    /** Пропускает замер, если бенчмарки не включены явно */
+    private static void assumeBenchmarksEnabled() {
+        Assume.assumeTrue("Бенчмарки отключены", ENABLED);
+    }
+
+    /** Время одного вызова, нс */
+    private static double timeOnce(Operation operation) {
+        long start = System.nanoTime();
+        sink = operation.run();
+        return System.nanoTime() - start;
+    }
+
+    /** Среднее время вызова после прогрева, нс */
+    private static double measure(Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink = operation.run();
+        }
+        return (double) (System.nanoTime() - start) / MEASURED_ITERATIONS;
+    }
+
+    private interface Operation {
+        Object run();
+    }
+}
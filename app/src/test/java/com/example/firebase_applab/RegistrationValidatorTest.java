@@ -0,0 +1,80 @@
+package com.example.firebase_applab;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Проверка RegistrationValidator: синтаксис email и политика паролей.
+ */
+public class RegistrationValidatorTest {
+
+    @Test
+    public void acceptsValidEmails() {
+        for (String email : new String[]{"ivan@example.com", "i.petrov+test@mail.example.ru",
+                "a_b-c@sub-domain.example.org", "x@ex.co", "user@site.xn--p1ai", "user@xn--e1afmkfd.xn--p1ai",
+                "почта@пример.рф", "иван@example.com"}) {
+            assertNull(email, RegistrationValidator.validateEmail(email));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedEmails() {
+        for (String email : new String[]{"ivan", "ivan@", "@example.com", "ivan@example", "ivan@@example.com",
+                "ivan..petrov@example.com", ".ivan@example.com", "ivan@-example.com", "ivan@example.c",
+                "ivan@example.1", "ivan@example.com-", "ivan @example.com"}) {
+            RegistrationValidator.Error error = RegistrationValidator.validateEmail(email);
+            assertNotNull(email, error);
+            assertEquals(RegistrationValidator.Field.EMAIL, error.getField());
+        }
+    }
+
+    @Test
+    public void rejectsTooLongEmail() {
+        StringBuilder local = new StringBuilder();
+        for (int i = 0; i < RegistrationValidator.MAX_EMAIL_LENGTH; i++) {
+            local.append('a');
+        }
+        assertNotNull(RegistrationValidator.validateEmail(local + "@example.com"));
+    }
+
+    @Test
+    public void defaultPolicyChecksOnlyLength() {
+        RegistrationValidator.PasswordPolicy policy = RegistrationValidator.PasswordPolicy.DEFAULT;
+
+        assertNotNull(RegistrationValidator.validatePassword("12345", policy));
+        assertNull(RegistrationValidator.validatePassword("123456", policy));
+        assertNull(RegistrationValidator.validatePassword("abcdef", policy));
+    }
+
+    @Test
+    public void configuredPolicyRequiresLetterAndDigit() {
+        RegistrationValidator.PasswordPolicy policy = new RegistrationValidator.PasswordPolicy(8, true, true);
+
+        assertNotNull(RegistrationValidator.validatePassword("abc1234", policy));
+        assertNotNull(RegistrationValidator.validatePassword("12345678", policy));
+        assertNotNull(RegistrationValidator.validatePassword("abcdefgh", policy));
+        assertNull(RegistrationValidator.validatePassword("abcdefg1", policy));
+    }
+
+    @Test
+    public void policyNeverGoesBelowFirebaseMinimum() {
+        RegistrationValidator.PasswordPolicy policy = new RegistrationValidator.PasswordPolicy(4, false, false);
+
+        assertEquals(RegistrationValidator.MIN_PASSWORD_LENGTH, policy.getMinLength());
+        assertNotNull(RegistrationValidator.validatePassword("1234", policy));
+    }
+
+    @Test
+    public void validateReportsFirstFieldInFormOrder() {
+        assertEquals(RegistrationValidator.Field.NAME,
+                RegistrationValidator.validate("", "bad", "1").getField());
+        assertEquals(RegistrationValidator.Field.EMAIL,
+                RegistrationValidator.validate("Иван", "bad", "1").getField());
+        assertEquals(RegistrationValidator.Field.PASSWORD,
+                RegistrationValidator.validate("Иван", "ivan@example.com", "1").getField());
+        assertNull(RegistrationValidator.validate("Иван", "ivan@example.com", "secret1"));
+    }
+}
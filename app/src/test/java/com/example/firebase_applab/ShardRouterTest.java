@@ -0,0 +1,110 @@
+package com.example.firebase_applab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Проверка ShardRouter: детерминированность, равномерность распределения
+ * и доля пользователей, переходящих к добавленному шарду.
+ */
+public class ShardRouterTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    public void sameUidAlwaysMapsToSameShard() {
+        List<String> shards = shards(3);
+        ShardRouter router = new ShardRouter(shards);
+        ShardRouter again = new ShardRouter(shards);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(router.shardFor(uid(i)), again.shardFor(uid(i)));
+        }
+    }
+
+    @Test
+    public void shardDoesNotDependOnListOrder() {
+        List<String> shards = shards(4);
+        List<String> reversed = new ArrayList<>(shards);
+        Collections.reverse(reversed);
+        ShardRouter router = new ShardRouter(shards);
+        ShardRouter other = new ShardRouter(reversed);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(router.getShards().get(router.shardFor(uid(i))),
+                    other.getShards().get(other.shardFor(uid(i))));
+        }
+    }
+
+    @Test
+    public void usersAreSpreadEvenly() {
+        ShardRouter router = new ShardRouter(shards(4));
+        int[] counts = new int[router.size()];
+        for (int i = 0; i < USERS; i++) {
+            counts[router.shardFor(uid(i))]++;
+        }
+
+        double mean = USERS / (double) counts.length;
+        for (int count : counts) {
+            assertTrue("Неравномерно: " + Arrays.toString(counts), Math.abs(count - mean) < mean * 0.15);
+        }
+    }
+
+    @Test
+    public void addingShardMovesAboutOneNth() {
+        ShardRouter before = new ShardRouter(shards(3));
+        ShardRouter after = new ShardRouter(shards(4));
+
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            int from = before.shardFor(uid(i));
+            int to = after.shardFor(uid(i));
+            if (from != to) {
+                moved++;
+                // Пользователи переходят только к новому шарду
+                assertEquals(3, to);
+            }
+        }
+
+        double share = moved / (double) USERS;
+        assertTrue("Перенесено " + share, share > 0.18 && share < 0.32);
+    }
+
+    @Test
+    public void singleShardTakesEveryone() {
+        ShardRouter router = new ShardRouter(shards(1));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, router.shardFor(uid(i)));
+        }
+    }
+
+    @Test
+    public void uidOfExtractsProfilePaths() {
+        assertEquals("abc", UserShards.uidOf("Users/abc"));
+        assertEquals("abc", UserShards.uidOf("Users/abc/name"));
+        assertNull(UserShards.uidOf("Users/"));
+        assertNull(UserShards.uidOf("UsersByEmail/a@b,com"));
+        assertNull(UserShards.uidOf("Presence/abc"));
+    }
+
+    private static List<String> shards(int count) {
+        List<String> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add("https://shard-" + i + ".firebaseio.com");
+        }
+        return shards;
+    }
+
+    private static String uid(int i) {
+        return String.format(Locale.ROOT, "uid-%06d", i);
+    }
+}
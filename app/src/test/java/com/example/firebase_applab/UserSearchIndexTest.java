@@ -0,0 +1,141 @@
+package com.example.firebase_applab;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Проверка префиксного поиска UserSearchIndex: дельта в памяти,
+ * слияние с файлом и повторное открытие файла.
+ */
+public class UserSearchIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private UserSearchIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "users.idx");
+        index = new UserSearchIndex(file);
+        index.put("u1", "Иван Петров", "ivan@example.com");
+        index.put("u2", "Пётр Иванов", "petr@example.com");
+        index.put("u3", "Anna", "anna@example.com");
+    }
+
+    @Test
+    public void findsByAnyNameWordAndEmail() {
+        assertEquals(List.of("u1", "u2"), sorted(index.search("ИВА", 10)));
+        assertEquals(List.of("u1", "u2"), sorted(index.search("пет", 10)));
+        assertEquals(List.of("u1"), sorted(index.search("иван п", 10)));
+        assertEquals(List.of("u3"), sorted(index.search("anna@", 10)));
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void respectsLimit() {
+        assertEquals(1, index.search("ива", 1).size());
+    }
+
+    @Test
+    public void compactMovesDeltaToFile() throws IOException {
+        index.compact();
+
+        assertEquals(0, index.getDeltaSize());
+        assertEquals(3, index.getBaseSize());
+        assertEquals(List.of("u1", "u2"), sorted(index.search("ива", 10)));
+        assertEquals("Anna", index.search("anna", 10).get(0).getUser().getName());
+    }
+
+    @Test
+    public void updatesAndRemovalsOverrideFile() throws IOException {
+        index.compact();
+
+        index.remove("u1");
+        index.put("u3", "Anna Karenina", "anna@example.com");
+        index.put("u4", "Иванна", "ivanna@example.com");
+
+        assertEquals(List.of("u2", "u4"), sorted(index.search("ива", 10)));
+        assertEquals(List.of("u3"), sorted(index.search("karen", 10)));
+
+        index.compact();
+        UserSearchIndex reopened = new UserSearchIndex(file);
+
+        assertEquals(3, reopened.getBaseSize());
+        assertEquals(List.of("u2", "u4"), sorted(reopened.search("ива", 10)));
+        assertEquals("Anna Karenina", reopened.search("karen", 10).get(0).getUser().getName());
+    }
+
+    @Test
+    public void removalDuringCompactionIsKept() throws IOException {
+        // u1..u3 ещё только в дельте и попадут в новый файл из снимка
+        index.afterSnapshotWritten = () -> index.remove("u1");
+        index.compact();
+        index.afterSnapshotWritten = null;
+
+        assertEquals(List.of("u2"), sorted(index.search("ива", 10)));
+
+        index.compact();
+        UserSearchIndex reopened = new UserSearchIndex(file);
+
+        assertEquals(2, reopened.getBaseSize());
+        assertEquals(List.of("u2"), sorted(reopened.search("ива", 10)));
+    }
+
+    @Test
+    public void unchangedProfileDoesNotGrowDelta() throws IOException {
+        index.compact();
+
+        index.put("u1", "Иван Петров", "ivan@example.com");
+
+        assertEquals(0, index.getDeltaSize());
+    }
+
+    @Test
+    public void mergeKeepsUtf8ByteOrderOutsideBmp() throws IOException {
+        // В UTF-16 суррогаты эмодзи (U+D83D…) меньше U+E000, в UTF-8 (F0…) — больше
+        String emoji = "😀";
+        String privateUse = "";
+        index.put(emoji + "1", emoji + " улыбка", "smile@example.com");
+        index.compact();
+        index.put(privateUse + "1", privateUse + " знак", "sign@example.com");
+        index.put(emoji + "2", emoji + "😁 ещё", "more@example.com");
+        index.compact();
+
+        UserSearchIndex reopened = new UserSearchIndex(file);
+
+        assertEquals(6, reopened.getBaseSize());
+        assertEquals(List.of(emoji + "1", emoji + "2"), sorted(reopened.search(emoji, 10)));
+        assertEquals(List.of(privateUse + "1"), sorted(reopened.search(privateUse, 10)));
+        assertEquals(privateUse + " знак", reopened.search("знак", 10).get(0).getUser().getName());
+        assertEquals(List.of("u1", "u2"), sorted(reopened.search("ива", 10)));
+    }
+
+    @Test
+    public void deltaSearchFindsPrefixOutsideBmp() {
+        String emoji = "😀";
+        index.put("u4", "ab" + emoji, "emoji@example.com");
+
+        assertEquals(List.of("u4"), sorted(index.search("ab", 10)));
+    }
+
+    private static List<String> sorted(List<UserEntry> entries) {
+        List<String> uids = new ArrayList<>();
+        for (UserEntry entry : entries) {
+            uids.add(entry.getUid());
+        }
+        uids.sort(null);
+        return uids;
+    }
+}